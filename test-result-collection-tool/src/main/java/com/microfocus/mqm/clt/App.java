@@ -35,6 +35,11 @@ package com.microfocus.mqm.clt;
 public class App {
 
     public static void main(String[] args) {
+        // lets TLS 1.3 connections resume sessions on Java 11 as well, enabled by default since Java 13;
+        // has to be set before the first SSL context is initialized, so it is set only when running as the CLI
+        if (System.getProperty("jdk.tls.client.enableSessionTicketExtension") == null) {
+            System.setProperty("jdk.tls.client.enableSessionTicketExtension", "true");
+        }
         CliParser cliParser = new CliParser();
         Settings settings = cliParser.parse(args);
         collectAndPushTestResults(settings);
@@ -63,6 +63,26 @@ public class CliParser {
         options.addOption("i", "internal", false, "supplied XML files are in the API internal XML format");
         options.addOption("e", "skip-errors", false, "skip errors on the server side");
         options.addOption(Option.builder("o").longOpt("output-file").desc("write output in the API internal XML format to file instead of pushing it to the server").hasArg().argName("FILE").build());
+        options.addOption(Option.builder().longOpt("stream-upload").desc("convert JUnit reports directly into the request body instead of using temporary files").build());
+        options.addOption(Option.builder().longOpt("compress").desc("compress pushed test results with gzip, falls back to uncompressed push if refused by the server").build());
+        options.addOption(Option.builder().longOpt("conversion-threads").desc("number of threads converting JUnit reports, defaults to the number of processors").hasArg().argName("COUNT").type(Number.class).build());
+        options.addOption(Option.builder().longOpt("max-concurrent-uploads").desc("maximum number of test results pushed to the server at the same time, default is 1").hasArg().argName("COUNT").type(Number.class).build());
+        options.addOption(Option.builder().longOpt("batch").desc("merge test results from multiple JUnit reports into a single push").build());
+        options.addOption(Option.builder().longOpt("max-payload-tests").desc("maximum number of test runs in a single push, larger reports are split, default in batch mode is " + TestResultCollectionTool.DEFAULT_MAX_PAYLOAD_TESTS).hasArg().argName("COUNT").type(Number.class).build());
+        options.addOption(Option.builder().longOpt("max-payload-bytes").desc("maximum size of a single push, larger reports are split, default in batch mode is " + TestResultCollectionTool.DEFAULT_MAX_PAYLOAD_BYTES).hasArg().argName("BYTES").type(Number.class).build());
+        options.addOption(Option.builder().longOpt("max-stacktrace-bytes").desc("maximum size of a captured stack trace, longer stack traces are truncated").hasArg().argName("BYTES").type(Number.class).build());
+        options.addOption(Option.builder().longOpt("max-message-bytes").desc("maximum size of a captured error message, longer messages are truncated").hasArg().argName("BYTES").type(Number.class).build());
+        options.addOption(Option.builder().longOpt("session-cache").desc("reuse the authenticated session in following runs, the session is stored encrypted in the given file").hasArg().argName("FILE").build());
+        options.addOption(Option.builder().longOpt("max-retries").desc("maximum number of retries of a request failing on network or transient server error, default is " + RetryPolicy.DEFAULT_MAX_RETRIES).hasArg().argName("COUNT").type(Number.class).build());
+        options.addOption(Option.builder().longOpt("retry-timeout").desc("maximum total time spent waiting for retries in seconds, default is " + RetryPolicy.DEFAULT_RETRY_TIMEOUT).hasArg().argName("SEC").type(Number.class).build());
+        options.addOption(Option.builder().longOpt("http2").desc("use HTTP/2 when supported by the server, concurrent requests share a single connection").build());
+        options.addOption(Option.builder().longOpt("max-connections").desc("maximum number of pooled connections to the server, defaults to the number of concurrent uploads plus one").hasArg().argName("COUNT").type(Number.class).build());
+        options.addOption(Option.builder().longOpt("connection-ttl").desc("maximum lifetime of a pooled connection in seconds, unlimited by default").hasArg().argName("SEC").type(Number.class).build());
+        options.addOption(Option.builder().longOpt("idle-timeout").desc("close pooled connections idle for longer than the given number of seconds, default is " + ConnectionPool.DEFAULT_IDLE_TIMEOUT).hasArg().argName("SEC").type(Number.class).build());
+        options.addOption(Option.builder().longOpt("keep-alive").desc("keep connections alive for the given number of seconds unless the server specifies otherwise, default is " + ConnectionPool.DEFAULT_KEEP_ALIVE).hasArg().argName("SEC").type(Number.class).build());
+        options.addOption(Option.builder().longOpt("connection-stats").desc("print numbers of leased, reused and created connections and of resumed TLS sessions").build());
+        options.addOption(Option.builder().longOpt("include").desc("include files matching the glob pattern when walking input directories, defaults to " + StringUtils.join(InputDiscovery.DEFAULT_INCLUDES, ", ")).hasArg().argName("GLOB").build());
+        options.addOption(Option.builder().longOpt("exclude").desc("skip files and directories matching the glob pattern when walking input directories").hasArg().argName("GLOB").build());
         options.addOption(Option.builder("c").longOpt("config-file").desc("configuration file location").hasArg().argName("FILE").build());
 
         options.addOption(Option.builder("s").longOpt("server").desc("server URL with protocol and port").hasArg().argName("URL:PORT").build());
@@ -85,7 +105,7 @@ public class CliParser {
         options.addOptionGroup(proxyPassGroup);
 
         options.addOption(Option.builder().longOpt("check-result").desc("check test result status after push").build());
-        options.addOption(Option.builder().longOpt("check-result-timeout").desc("timeout for test result push status retrieval").hasArg().argName("SEC").type(Number.class).build());
+        options.addOption(Option.builder().longOpt("check-result-timeout").desc("maximum time in seconds to wait for the statuses of all pushed test results, counted from the last push, default is 10").hasArg().argName("SEC").type(Number.class).build());
 
         options.addOption(Option.builder("t").longOpt("tag").desc("assign environment tag to test runs").hasArg().argName("TYPE:VALUE").build());
         options.addOption(Option.builder().longOpt("access-token").desc("IDP access token for authentication").hasArg().argName("PASSWORD").build());
@@ -110,8 +130,10 @@ public class CliParser {
 
         argsWithSingleOccurrence.addAll(Arrays.asList("o", "c", "s", "d", "w", "u", "p", "password-file", "r", "release-default", "m", "started", "check-status", "program",
                 "check-status-timeout", "proxy-host", "proxy-port", "proxy-user", "proxy-password", "proxy-password-file", "suite", "suite-external-run-id",
-                "build-context-server-id","build-context-build-id","build-context-job-id"));
-        argsRestrictedForInternal.addAll(Arrays.asList("o", "t", "f", "r", "m", "a", "b", "started", "suite", "suite-external-run-id", "program", "release-default",
+                "build-context-server-id","build-context-build-id","build-context-job-id", "conversion-threads", "max-concurrent-uploads", "max-payload-tests", "max-payload-bytes",
+                "max-stacktrace-bytes", "max-message-bytes", "session-cache", "max-retries", "retry-timeout",
+                "max-connections", "connection-ttl", "idle-timeout", "keep-alive"));
+        argsRestrictedForInternal.addAll(Arrays.asList("o", "stream-upload", "conversion-threads", "batch", "max-payload-tests", "max-payload-bytes", "max-stacktrace-bytes", "max-message-bytes", "t", "f", "r", "m", "a", "b", "started", "suite", "suite-external-run-id", "program", "release-default",
                 "build-context-server-id","build-context-build-id","build-context-job-id"));
         argsForBuildContext.addAll(Arrays.asList("build-context-server-id","build-context-build-id","build-context-job-id"));
     }
@@ -173,6 +195,86 @@ public class CliParser {
                 settings.setOutputFile(cmd.getOptionValue("o"));
             }
 
+            if (cmd.hasOption("include")) {
+                settings.setIncludes(Arrays.asList(cmd.getOptionValues("include")));
+            }
+
+            if (cmd.hasOption("exclude")) {
+                settings.setExcludes(Arrays.asList(cmd.getOptionValues("exclude")));
+            }
+
+            if (cmd.hasOption("stream-upload")) {
+                settings.setStreamUpload(true);
+            }
+
+            if (cmd.hasOption("compress")) {
+                settings.setCompress(true);
+            }
+
+            if (cmd.hasOption("conversion-threads")) {
+                settings.setConversionThreads(((Long) cmd.getParsedOptionValue("conversion-threads")).intValue());
+            }
+
+            if (cmd.hasOption("max-concurrent-uploads")) {
+                settings.setMaxConcurrentUploads(((Long) cmd.getParsedOptionValue("max-concurrent-uploads")).intValue());
+            }
+
+            if (cmd.hasOption("batch")) {
+                settings.setBatch(true);
+            }
+
+            if (cmd.hasOption("max-payload-tests")) {
+                settings.setMaxPayloadTests(((Long) cmd.getParsedOptionValue("max-payload-tests")).intValue());
+            }
+
+            if (cmd.hasOption("max-payload-bytes")) {
+                settings.setMaxPayloadBytes((Long) cmd.getParsedOptionValue("max-payload-bytes"));
+            }
+
+            if (cmd.hasOption("max-stacktrace-bytes")) {
+                settings.setMaxStackTraceBytes(((Long) cmd.getParsedOptionValue("max-stacktrace-bytes")).intValue());
+            }
+
+            if (cmd.hasOption("max-message-bytes")) {
+                settings.setMaxMessageBytes(((Long) cmd.getParsedOptionValue("max-message-bytes")).intValue());
+            }
+
+            if (cmd.hasOption("max-retries")) {
+                settings.setMaxRetries(((Long) cmd.getParsedOptionValue("max-retries")).intValue());
+            }
+
+            if (cmd.hasOption("retry-timeout")) {
+                settings.setRetryTimeout(((Long) cmd.getParsedOptionValue("retry-timeout")).intValue());
+            }
+
+            if (cmd.hasOption("max-connections")) {
+                settings.setMaxConnections(((Long) cmd.getParsedOptionValue("max-connections")).intValue());
+            }
+
+            if (cmd.hasOption("connection-ttl")) {
+                settings.setConnectionTtl(((Long) cmd.getParsedOptionValue("connection-ttl")).intValue());
+            }
+
+            if (cmd.hasOption("idle-timeout")) {
+                settings.setIdleTimeout(((Long) cmd.getParsedOptionValue("idle-timeout")).intValue());
+            }
+
+            if (cmd.hasOption("keep-alive")) {
+                settings.setKeepAlive(((Long) cmd.getParsedOptionValue("keep-alive")).intValue());
+            }
+
+            if (cmd.hasOption("http2")) {
+                settings.setHttp2(true);
+            }
+
+            if (cmd.hasOption("connection-stats")) {
+                settings.setConnectionStats(true);
+            }
+
+            if (cmd.hasOption("session-cache")) {
+                settings.setSessionCacheFile(cmd.getOptionValue("session-cache"));
+            }
+
             if (cmd.hasOption("s")) {
                 settings.setServer(cmd.getOptionValue("s"));
             }
@@ -316,7 +418,24 @@ public class CliParser {
         List<String> argList = cmd.getArgList();
         List<String> inputFiles = new LinkedList<String>();
         for (String inputFile : argList) {
-            if (!new File(inputFile).isFile()) {
+            if (ReportInput.STDIN.equals(inputFile)) {
+                if (inputFiles.contains(inputFile)) {
+                    System.out.println("Standard input can be read only once");
+                    continue;
+                }
+                inputFiles.add(inputFile);
+                continue;
+            }
+            if (InputDiscovery.isGlob(inputFile)) {
+                if (!InputDiscovery.isValidPattern(inputFile)) {
+                    System.out.println("Invalid glob pattern '" + inputFile + "'");
+                    continue;
+                }
+                inputFiles.add(inputFile);
+                continue;
+            }
+            // directories are walked for reports, named pipes and other special files are read as streams
+            if (!new File(inputFile).isFile() && !new File(inputFile).isDirectory() && !ReportInput.isStream(new File(inputFile))) {
                 System.out.println("Path '" + inputFile + "' does not lead to a file");
                 continue;
             }
@@ -380,6 +499,17 @@ public class CliParser {
             }
         }
 
+        for (String arg : Arrays.asList("include", "exclude")) {
+            if (cmd.hasOption(arg)) {
+                for (String pattern : cmd.getOptionValues(arg)) {
+                    if (!InputDiscovery.isValidPattern(pattern)) {
+                        System.out.println("Invalid glob pattern for argument '" + arg + "': " + pattern);
+                        return false;
+                    }
+                }
+            }
+        }
+
         if (!isTagFormatValid(cmd, "t") || !isTagFormatValid(cmd, "f")) {
             return false;
         }
@@ -402,10 +532,24 @@ public class CliParser {
             return false;
         }
 
+        if (cmd.hasOption("batch") && cmd.hasOption("stream-upload")) {
+            System.out.println("Batch mode can not be combined with stream upload");
+            return false;
+        }
+        if (cmd.hasOption("batch") && cmd.hasOption("conversion-threads")) {
+            System.out.println("Batch mode can not be combined with conversion threads, batches are converted on a single thread");
+            return false;
+        }
+
+        if (cmd.hasOption("stream-upload") && (cmd.hasOption("max-payload-tests") || cmd.hasOption("max-payload-bytes"))) {
+            System.out.println("Payload limits can not be combined with stream upload");
+            return false;
+        }
+
         String outputFilePath = cmd.getOptionValue("o");
         if (outputFilePath != null) {
             if (argList.size() != 1) {
-                System.out.println("Only single JUnit input file is allowed for output mode");
+                System.out.println("Only single JUnit input file, directory or pattern is allowed for output mode");
                 return false;
             }
             File outputFile = new File(outputFilePath);
@@ -478,6 +622,42 @@ public class CliParser {
                 return false;
             }
 
+            if (settings.getConversionThreads() != null && settings.getConversionThreads() < 1) {
+                System.out.println("Number of conversion threads has to be positive integer");
+                return false;
+            }
+
+            if (settings.getMaxConcurrentUploads() != null && settings.getMaxConcurrentUploads() < 1) {
+                System.out.println("Maximum number of concurrent uploads has to be positive integer");
+                return false;
+            }
+
+            if ((settings.getMaxPayloadTests() != null && settings.getMaxPayloadTests() < 1) ||
+                    (settings.getMaxPayloadBytes() != null && settings.getMaxPayloadBytes() < 1)) {
+                System.out.println("Payload limits have to be positive integers");
+                return false;
+            }
+
+            if ((settings.getMaxStackTraceBytes() != null && settings.getMaxStackTraceBytes() < 1) ||
+                    (settings.getMaxMessageBytes() != null && settings.getMaxMessageBytes() < 1)) {
+                System.out.println("Stack trace and message limits have to be positive integers");
+                return false;
+            }
+
+            if ((settings.getMaxRetries() != null && settings.getMaxRetries() < 0) ||
+                    (settings.getRetryTimeout() != null && settings.getRetryTimeout() < 0)) {
+                System.out.println("Maximum number of retries and retry timeout can not be negative");
+                return false;
+            }
+
+            if ((settings.getMaxConnections() != null && settings.getMaxConnections() < 1) ||
+                    (settings.getConnectionTtl() != null && settings.getConnectionTtl() < 1) ||
+                    (settings.getIdleTimeout() != null && settings.getIdleTimeout() < 1) ||
+                    (settings.getKeepAlive() != null && settings.getKeepAlive() < 1)) {
+                System.out.println("Connection pool settings have to be positive integers");
+                return false;
+            }
+
             if (settings.getRelease() != null && settings.isDefaultRelease()) {
                 System.out.println("Default release cannot be assigned along with release ID assignment");
                 return false;
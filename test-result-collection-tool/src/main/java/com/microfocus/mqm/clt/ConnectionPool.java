@@ -0,0 +1,161 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpResponse;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of connections to the server shared by all requests. Connections are kept alive between requests,
+ * idle connections are closed in the background, and the pool counts how many connections were leased,
+ * how many of them were reused and how many were created.
+ */
+public class ConnectionPool {
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 2;
+    public static final int DEFAULT_IDLE_TIMEOUT = 30; // in seconds
+    public static final int DEFAULT_KEEP_ALIVE = 30; // in seconds
+    private static final int VALIDATE_AFTER_INACTIVITY = 2000; // in milliseconds
+
+    private final AtomicLong leased = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final int idleTimeout;
+    private final long keepAlive;
+
+    public ConnectionPool(Settings settings, Registry<ConnectionSocketFactory> socketFactoryRegistry) {
+        long timeToLive = (settings.getConnectionTtl() != null) ? settings.getConnectionTtl() : -1;
+        idleTimeout = (settings.getIdleTimeout() != null) ? settings.getIdleTimeout() : DEFAULT_IDLE_TIMEOUT;
+        keepAlive = ((settings.getKeepAlive() != null) ? settings.getKeepAlive() : DEFAULT_KEEP_ALIVE) * 1000L;
+
+        connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry, new CountingConnectionFactory(),
+                null, null, timeToLive, TimeUnit.SECONDS) {
+            @Override
+            public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+                return new CountingConnectionRequest(super.requestConnection(route, state));
+            }
+        };
+        int maxConnections = getMaxConnectionsPerRoute(settings);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY);
+    }
+
+    public void configure(HttpClientBuilder httpClientBuilder) {
+        httpClientBuilder.setConnectionManager(connectionManager);
+        httpClientBuilder.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                // keep-alive timeout announced by the server has precedence
+                long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return (duration > 0) ? duration : keepAlive;
+            }
+        });
+        httpClientBuilder.evictExpiredConnections();
+        httpClientBuilder.evictIdleConnections(idleTimeout, TimeUnit.SECONDS);
+    }
+
+    public long getLeased() {
+        return leased.get();
+    }
+
+    public long getReused() {
+        return reused.get();
+    }
+
+    public long getCreated() {
+        return created.get();
+    }
+
+    private static int getMaxConnectionsPerRoute(Settings settings) {
+        if (settings.getMaxConnections() != null) {
+            return settings.getMaxConnections();
+        }
+        // every concurrent upload and the publish status poller need their own connection
+        int maxConcurrentUploads = (settings.getMaxConcurrentUploads() != null) ? settings.getMaxConcurrentUploads() : 1;
+        return Math.max(DEFAULT_MAX_CONNECTIONS_PER_ROUTE, maxConcurrentUploads + 1);
+    }
+
+    private final class CountingConnectionFactory implements HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> {
+
+        @Override
+        public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+            created.incrementAndGet();
+            return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+        }
+    }
+
+    private final class CountingConnectionRequest implements ConnectionRequest {
+
+        private final ConnectionRequest connectionRequest;
+
+        private CountingConnectionRequest(ConnectionRequest connectionRequest) {
+            this.connectionRequest = connectionRequest;
+        }
+
+        @Override
+        public HttpClientConnection get(long timeout, TimeUnit timeUnit) throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+            HttpClientConnection connection = connectionRequest.get(timeout, timeUnit);
+            leased.incrementAndGet();
+            // a new connection is opened only after it is leased
+            if (connection.isOpen()) {
+                reused.incrementAndGet();
+            }
+            return connection;
+        }
+
+        @Override
+        public boolean cancel() {
+            return connectionRequest.cancel();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SSL socket factory counting TLS handshakes and how many of them resumed a previous session.
+ */
+public class CountingSSLSocketFactory extends SSLConnectionSocketFactory {
+
+    private final AtomicLong handshakes = new AtomicLong();
+    private final AtomicLong resumed = new AtomicLong();
+
+    public CountingSSLSocketFactory(SSLContext sslContext, HostnameVerifier hostnameVerifier) {
+        super(sslContext, hostnameVerifier);
+    }
+
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+        long started = System.currentTimeMillis();
+        Socket sslSocket = super.createLayeredSocket(socket, target, port, context);
+        handshakes.incrementAndGet();
+        // a resumed session keeps the creation time of the session it was resumed from
+        if (((SSLSocket) sslSocket).getSession().getCreationTime() < started) {
+            resumed.incrementAndGet();
+        }
+        return sslSocket;
+    }
+
+    public long getHandshakes() {
+        return handshakes.get();
+    }
+
+    public long getResumed() {
+        return resumed.get();
+    }
+}
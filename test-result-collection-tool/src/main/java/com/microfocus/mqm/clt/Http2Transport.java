@@ -0,0 +1,300 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.cookie.CookieOrigin;
+import org.apache.http.cookie.CookieSpec;
+import org.apache.http.cookie.MalformedCookieException;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.impl.cookie.RFC6265CookieSpecProvider;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+
+import javax.net.ssl.SSLContext;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Executes requests of the REST client with the Java HTTP client, which multiplexes concurrent requests over
+ * a single HTTP/2 connection when the server supports it and uses HTTP/1.1 otherwise. Requests and responses
+ * are translated from and to Apache HttpClient types, so the rest of the REST client does not depend on the
+ * transport.
+ */
+public class Http2Transport {
+
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    private final Set<String> restrictedHeaders = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    private final HttpClient httpClient;
+    private final CookieSpec cookieSpec = new RFC6265CookieSpecProvider().create(new BasicHttpContext());
+    private final ExecutorService bodyWriters = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "request-body-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong http2Responses = new AtomicLong();
+    private final AtomicLong http11Responses = new AtomicLong();
+
+    public Http2Transport(SSLContext sslContext, ProxySelector proxySelector) {
+        // set by the Java HTTP client itself
+        restrictedHeaders.addAll(List.of("Connection", "Content-Length", "Expect", "Host", "Upgrade", "Transfer-Encoding"));
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(RestClient.DEFAULT_CONNECTION_TIMEOUT))
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (sslContext != null) {
+            builder.sslContext(sslContext);
+        }
+        if (proxySelector != null) {
+            builder.proxy(proxySelector);
+        }
+        httpClient = builder.build();
+    }
+
+    public CloseableHttpResponse execute(HttpUriRequest request, CookieStore cookieStore) throws IOException {
+        URI uri = request.getURI();
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = (uri.getPort() >= 0) ? uri.getPort() : (secure ? 443 : 80);
+        CookieOrigin origin = new CookieOrigin(uri.getHost(), port, uri.getPath().isEmpty() ? "/" : uri.getPath(), secure);
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+        for (Header header : request.getAllHeaders()) {
+            if (!restrictedHeaders.contains(header.getName())) {
+                builder.header(header.getName(), header.getValue());
+            }
+        }
+        addCookies(builder, cookieStore, origin);
+        HttpEntity entity = (request instanceof HttpEntityEnclosingRequest) ? ((HttpEntityEnclosingRequest) request).getEntity() : null;
+        if (entity != null) {
+            // headers of the entity are added only when not set on the request, as done by Apache HttpClient
+            for (Header header : new Header[]{entity.getContentType(), entity.getContentEncoding()}) {
+                if (header != null && !request.containsHeader(header.getName())) {
+                    builder.header(header.getName(), header.getValue());
+                }
+            }
+            builder.method(request.getMethod(), createBodyPublisher(entity));
+        } else {
+            // a request with a body may take long to upload, only requests without a body have a time limit
+            RequestConfig config = (request instanceof Configurable) ? ((Configurable) request).getConfig() : null;
+            int timeout = (config != null && config.getSocketTimeout() > 0) ? config.getSocketTimeout() : RestClient.DEFAULT_SO_TIMEOUT;
+            builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody())
+                    .timeout(Duration.ofMillis(timeout));
+        }
+
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while executing request to " + uri.getPath());
+        } catch (IOException e) {
+            // the failure of the entity is reported as it would be by Apache HttpClient
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof EntityWriteException) {
+                    if (cause.getCause() instanceof IOException) {
+                        throw (IOException) cause.getCause();
+                    }
+                    throw (RuntimeException) cause.getCause();
+                }
+            }
+            throw e;
+        }
+        if (response.version() == HttpClient.Version.HTTP_2) {
+            http2Responses.incrementAndGet();
+        } else {
+            http11Responses.incrementAndGet();
+        }
+        storeCookies(response, cookieStore, origin);
+        return new TransportResponse(response);
+    }
+
+    public long getHttp2Responses() {
+        return http2Responses.get();
+    }
+
+    public long getHttp11Responses() {
+        return http11Responses.get();
+    }
+
+    private void addCookies(HttpRequest.Builder builder, CookieStore cookieStore, CookieOrigin origin) {
+        List<Cookie> matchingCookies = new ArrayList<>();
+        Date now = new Date();
+        for (Cookie cookie : cookieStore.getCookies()) {
+            if (!cookie.isExpired(now) && cookieSpec.match(cookie, origin)) {
+                matchingCookies.add(cookie);
+            }
+        }
+        if (!matchingCookies.isEmpty()) {
+            for (Header header : cookieSpec.formatCookies(matchingCookies)) {
+                builder.header(header.getName(), header.getValue());
+            }
+        }
+    }
+
+    private void storeCookies(HttpResponse<?> response, CookieStore cookieStore, CookieOrigin origin) {
+        for (String value : response.headers().allValues("Set-Cookie")) {
+            try {
+                for (Cookie cookie : cookieSpec.parse(new BasicHeader("Set-Cookie", value), origin)) {
+                    cookieSpec.validate(cookie, origin);
+                    cookieStore.addCookie(cookie);
+                }
+            } catch (MalformedCookieException e) {
+                // ignored the same way as by Apache HttpClient
+            }
+        }
+    }
+
+    private HttpRequest.BodyPublisher createBodyPublisher(final HttpEntity entity) {
+        HttpRequest.BodyPublisher publisher = HttpRequest.BodyPublishers.ofInputStream(() -> openContent(entity));
+        return (entity.getContentLength() >= 0) ? HttpRequest.BodyPublishers.fromPublisher(publisher, entity.getContentLength()) : publisher;
+    }
+
+    /**
+     * Entities write their content into an output stream, it is piped to the Java HTTP client on a separate thread.
+     * A failure of the entity fails the request instead of ending the body early.
+     */
+    private InputStream openContent(final HttpEntity entity) {
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final PipedInputStream content = new PipedInputStream(PIPE_SIZE);
+        final PipedOutputStream pipe;
+        try {
+            pipe = new PipedOutputStream(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        bodyWriters.execute(() -> {
+            try {
+                entity.writeTo(pipe);
+            } catch (IOException | RuntimeException e) {
+                // has to be set before the pipe is closed and the reader sees the end of the content
+                failure.set(e);
+            } finally {
+                try {
+                    pipe.close();
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        });
+        return new FilterInputStream(content) {
+            @Override
+            public int read() throws IOException {
+                return checkFailure(super.read());
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return checkFailure(super.read(b, off, len));
+            }
+
+            private int checkFailure(int result) throws IOException {
+                if (result < 0 && failure.get() != null) {
+                    throw new EntityWriteException(failure.get());
+                }
+                return result;
+            }
+        };
+    }
+
+    private static final class EntityWriteException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private EntityWriteException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    private static final class TransportResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        private final InputStream body;
+
+        private TransportResponse(HttpResponse<InputStream> response) {
+            super(new ProtocolVersion("HTTP", response.version() == HttpClient.Version.HTTP_2 ? 2 : 1, response.version() == HttpClient.Version.HTTP_2 ? 0 : 1),
+                    response.statusCode(), EnglishReasonPhraseCatalog.INSTANCE.getReason(response.statusCode(), Locale.ENGLISH));
+            body = response.body();
+            for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+                // HTTP/2 pseudo headers like :status are not real headers
+                if (!header.getKey().startsWith(":")) {
+                    for (String value : header.getValue()) {
+                        addHeader(header.getKey(), value);
+                    }
+                }
+            }
+            long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+            InputStreamEntity entity = new InputStreamEntity(body, contentLength);
+            response.headers().firstValue("Content-Type").ifPresent(entity::setContentType);
+            response.headers().firstValue("Content-Encoding").ifPresent(entity::setContentEncoding);
+            setEntity(entity);
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+}
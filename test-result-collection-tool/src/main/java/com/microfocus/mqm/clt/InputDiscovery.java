@@ -0,0 +1,264 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Expands the input paths given on the command line to report files. Files, the standard input and pipes are
+ * passed as they are, directories are walked recursively and glob patterns, like "build/**&#47;TEST-*.xml", are
+ * matched below the directory preceding the first wildcard. Directories are walked in parallel and discovered
+ * files are handed over while the walk is still in progress, so their conversion does not wait for it to finish.
+ */
+public class InputDiscovery {
+
+    public static final List<String> DEFAULT_INCLUDES = Collections.unmodifiableList(Arrays.asList("**/*.xml", "**/*.trx", "**/*.json"));
+
+    // marks the end of the discovered files in the queue
+    private static final String END = new String("");
+
+    private final List<String> inputs;
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+    private final BlockingQueue<String> discovered = new LinkedBlockingQueue<String>();
+    // walked files are handed over only once, even when matched by multiple inputs
+    private final Set<Path> walkedFiles = ConcurrentHashMap.newKeySet();
+    private volatile boolean isEnd = false;
+    private volatile boolean isFailed = false;
+
+    public InputDiscovery(Settings settings) {
+        inputs = settings.getInputXmlFileNames();
+        includes = createMatchers((settings.getIncludes() != null) ? settings.getIncludes() : DEFAULT_INCLUDES);
+        excludes = createMatchers((settings.getExcludes() != null) ? settings.getExcludes() : Collections.<String>emptyList());
+    }
+
+    /**
+     * Starts the discovery in a background thread.
+     */
+    public InputDiscovery start() {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                try {
+                    for (String input : inputs) {
+                        discover(input, pool);
+                    }
+                } catch (RuntimeException e) {
+                    System.out.println("Unable to discover input files: " + e.getMessage());
+                    isFailed = true;
+                } finally {
+                    pool.shutdownNow();
+                    discovered.add(END);
+                }
+            }
+        }, "input-discovery");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Waits for the next discovered file, files given explicitly are returned in the order of the inputs.
+     *
+     * @return path of the next report file or null when all inputs were processed
+     */
+    public String next() throws InterruptedException {
+        if (isEnd) {
+            return null;
+        }
+        String fileName = discovered.take();
+        if (fileName == END) {
+            isEnd = true;
+            return null;
+        }
+        return fileName;
+    }
+
+    /**
+     * @return true when an input or some of the walked directories could not be read, available once
+     * {@link #next()} returned null
+     */
+    public boolean isFailed() {
+        return isFailed;
+    }
+
+    /**
+     * @return true when the input is not an existing file and contains wildcards
+     */
+    public static boolean isGlob(String input) {
+        return !ReportInput.STDIN.equals(input) && !new File(input).exists() && StringUtils.containsAny(input, "*?[{");
+    }
+
+    /**
+     * @return true when the pattern is a valid glob pattern
+     */
+    public static boolean isValidPattern(String pattern) {
+        try {
+            createMatchers(Collections.singletonList(pattern));
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void discover(String input, ForkJoinPool pool) {
+        File file = new File(input);
+        if (isGlob(input)) {
+            // the pattern is matched relative to the longest path without wildcards
+            List<String> baseSegments = new LinkedList<String>();
+            List<String> patternSegments = new LinkedList<String>();
+            for (String segment : input.split("[/\\\\]", -1)) {
+                if (patternSegments.isEmpty() && !StringUtils.containsAny(segment, "*?[{")) {
+                    baseSegments.add(segment);
+                } else {
+                    patternSegments.add(segment);
+                }
+            }
+            String base = StringUtils.join(baseSegments, File.separator);
+            if (baseSegments.size() == 1 && base.isEmpty()) {
+                base = File.separator;
+            }
+            Path baseDir = Paths.get(base.isEmpty() ? "." : base);
+            if (!Files.isDirectory(baseDir)) {
+                System.out.println("Path '" + input + "' does not lead to a file");
+                isFailed = true;
+                return;
+            }
+            walk(input, baseDir, createMatchers(Collections.singletonList(StringUtils.join(patternSegments, "/"))), pool);
+        } else if (file.isDirectory()) {
+            walk(input, file.toPath(), includes, pool);
+        } else {
+            discovered.add(input);
+        }
+    }
+
+    private void walk(String input, Path baseDir, List<PathMatcher> fileMatchers, ForkJoinPool pool) {
+        AtomicInteger count = new AtomicInteger();
+        pool.invoke(new DirectoryWalk(baseDir, baseDir, fileMatchers, count));
+        if (count.get() == 0) {
+            System.out.println("No report files found in '" + input + "'");
+        }
+    }
+
+    private static boolean matches(List<PathMatcher> matchers, Path relativePath) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(relativePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * "**&#47;" in a glob pattern matches also no directory, so that "**&#47;*.xml" includes reports in the base
+     * directory. Patterns with their own groups are used unchanged, as groups can not be nested.
+     */
+    private static List<PathMatcher> createMatchers(List<String> patterns) {
+        List<PathMatcher> matchers = new ArrayList<PathMatcher>();
+        for (String pattern : patterns) {
+            String glob = pattern.contains("{") ? pattern : pattern.replace("**/", "{**/,}");
+            matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        }
+        return matchers;
+    }
+
+    /**
+     * Lists a single directory, its subdirectories are walked by forked tasks. Symbolic links to files are
+     * followed, links to directories are not to avoid cycles. Excluded directories are not walked at all.
+     */
+    private final class DirectoryWalk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path baseDir;
+        private final Path dir;
+        private final List<PathMatcher> fileMatchers;
+        private final AtomicInteger count;
+
+        private DirectoryWalk(Path baseDir, Path dir, List<PathMatcher> fileMatchers, AtomicInteger count) {
+            this.baseDir = baseDir;
+            this.dir = dir;
+            this.fileMatchers = fileMatchers;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryWalk> subdirWalks = new LinkedList<DirectoryWalk>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    Path relativePath = baseDir.relativize(entry);
+                    if (matches(excludes, relativePath)) {
+                        continue;
+                    }
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        subdirWalks.add(new DirectoryWalk(baseDir, entry, fileMatchers, count));
+                    } else if (Files.isRegularFile(entry) && matches(fileMatchers, relativePath)
+                            && walkedFiles.add(entry.toAbsolutePath().normalize())) {
+                        count.incrementAndGet();
+                        discovered.add(entry.normalize().toString());
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                // the other directories are still walked, the failure is reported by the return code
+                System.out.println("Unable to read directory '" + dir + "': " + e.getMessage());
+                isFailed = true;
+            }
+            invokeAll(subdirWalks);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.microfocus.mqm.clt;
+
+import com.microfocus.mqm.clt.Exception.ReportConversionException;
+import com.microfocus.mqm.clt.xml.TestResultXmlWriter;
+import org.apache.http.entity.ContentProducer;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * Converts JUnit report directly into the request body while it is being sent, no temporary file is created.
+ * The report is parsed again every time the body is written, so the entity stays repeatable, unless the report
+ * is read from the standard input or a pipe. An invalid report fails with {@link ReportConversionException},
+ * so that the request is not retried.
+ */
+public class JunitReportContentProducer implements ContentProducer {
+
+    private final File junitReport;
+    private final Settings settings;
+
+    public JunitReportContentProducer(File junitReport, Settings settings) {
+        this.junitReport = junitReport;
+        this.settings = settings;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        SendingOutputStream sendingStream = new SendingOutputStream(outputStream);
+        TestResultXmlWriter testResultXmlWriter = new TestResultXmlWriter(sendingStream);
+        int testResultsCount;
+        try {
+            testResultsCount = xmlProcessor.writeJunitTestReport(junitReport, settings, testResultXmlWriter);
+        } catch (IOException e) {
+            if (sendingStream.failure != null) {
+                throw sendingStream.failure;
+            }
+            throw new ReportConversionException("Unable to process JUnit XML file '" + ReportInput.getPath(junitReport) + "': " + e.getMessage(), e);
+        } catch (XMLStreamException e) {
+            if (sendingStream.failure != null) {
+                throw sendingStream.failure;
+            }
+            throw new ReportConversionException("Unable to process JUnit XML file '" + ReportInput.getPath(junitReport) + "', XML stream exception has occurred: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Unable to process JUnit XML file '" + ReportInput.getPath(junitReport) + "', thread was interrupted: " + e.getMessage());
+        } catch (RuntimeException e) {
+            throw new ReportConversionException("Unable to process JUnit XML file '" + ReportInput.getPath(junitReport) + "', XSD validation was not successful: " + e.getMessage(), e);
+        }
+        // the writer is deliberately not closed on failure - a request body without the closing
+        // elements and the final chunk is aborted instead of being accepted as a partial result
+        if (testResultsCount == 0) {
+            throw new ReportConversionException("No valid test results to push in JUnit XML file '" + ReportInput.getPath(junitReport) + "'");
+        }
+        try {
+            testResultXmlWriter.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to finish test results of JUnit XML file '" + ReportInput.getPath(junitReport) + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Remembers failures of sending the body, to tell them from failures of reading the report.
+     */
+    private static final class SendingOutputStream extends FilterOutputStream {
+
+        private IOException failure;
+
+        private SendingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+    }
+}
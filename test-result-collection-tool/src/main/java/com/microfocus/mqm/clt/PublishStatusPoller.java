@@ -0,0 +1,203 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import com.microfocus.mqm.clt.Exception.StatusRetrievalException;
+import com.microfocus.mqm.clt.tests.TestResultPushStatus;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks publish status of pushed test results on a single thread. Every test result is checked soon after
+ * the push and then with geometrically growing delays, unless the server asks for a longer delay by the
+ * Retry-After header of a status or of a throttled status request. Test results due at about the same time
+ * are checked in one polling round, so the number of status requests does not grow with the polling frequency
+ * of every single push. All test results share a single deadline, which every push moves to the timeout after
+ * it, so the timeout is counted from the last push. Status requests are not retried by the client, as that would
+ * hold up checks of all other test results, a failed check is repeated in the following rounds instead.
+ */
+public class PublishStatusPoller {
+
+    private static final long INITIAL_DELAY = 100; // in milliseconds
+    private static final long MAX_DELAY = 5000; // in milliseconds
+    private static final long ROUND_WINDOW = 200; // in milliseconds
+
+    private final RestClient client;
+    private final long timeout;
+    private final List<PendingStatus> pendingStatuses = new LinkedList<PendingStatus>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private long deadline;
+
+    /**
+     * @param timeout time in milliseconds after the last push, after which the last obtained statuses are returned
+     */
+    public PublishStatusPoller(RestClient client, long timeout) {
+        this.client = client;
+        this.timeout = timeout;
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                poll();
+            }
+        });
+    }
+
+    /**
+     * @return future completed with the final status or with the last obtained status once the timeout expires
+     */
+    public synchronized Future<TestResultPushStatus> watch(long testResultId) {
+        deadline = System.currentTimeMillis() + timeout;
+        PendingStatus pendingStatus = new PendingStatus(testResultId);
+        pendingStatuses.add(pendingStatus);
+        notifyAll();
+        return pendingStatus.result;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void poll() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                for (PendingStatus pendingStatus : takeDueStatuses()) {
+                    check(pendingStatus);
+                }
+            }
+        } catch (InterruptedException e) {
+            // poller was shut down
+        }
+    }
+
+    private synchronized List<PendingStatus> takeDueStatuses() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long nextCheck = getNextCheck();
+        while (nextCheck > now) {
+            if (nextCheck == Long.MAX_VALUE) {
+                wait();
+            } else {
+                wait(nextCheck - now);
+            }
+            now = System.currentTimeMillis();
+            nextCheck = getNextCheck();
+        }
+        List<PendingStatus> dueStatuses = new LinkedList<PendingStatus>();
+        for (PendingStatus pendingStatus : pendingStatuses) {
+            if (pendingStatus.nextCheck <= now + ROUND_WINDOW) {
+                dueStatuses.add(pendingStatus);
+            }
+        }
+        return dueStatuses;
+    }
+
+    private long getNextCheck() {
+        long nextCheck = Long.MAX_VALUE;
+        for (PendingStatus pendingStatus : pendingStatuses) {
+            nextCheck = Math.min(nextCheck, pendingStatus.nextCheck);
+        }
+        return nextCheck;
+    }
+
+    private void check(PendingStatus pendingStatus) {
+        long deadline = getDeadline();
+        if (pendingStatus.lastStatus != null && System.currentTimeMillis() >= deadline) {
+            // the status is not checked again once the deadline passed
+            complete(pendingStatus);
+            pendingStatus.result.complete(pendingStatus.lastStatus);
+            return;
+        }
+        TestResultPushStatus status;
+        try {
+            status = client.getTestResultStatus(pendingStatus.testResultId);
+        } catch (RuntimeException e) {
+            // status requests are not retried, a failed check is repeated in one of the next rounds until the deadline
+            long now = System.currentTimeMillis();
+            if (now >= deadline) {
+                complete(pendingStatus);
+                if (pendingStatus.lastStatus != null) {
+                    pendingStatus.result.complete(pendingStatus.lastStatus);
+                } else {
+                    pendingStatus.result.completeExceptionally(e);
+                }
+                return;
+            }
+            pendingStatus.delay = Math.min(MAX_DELAY, pendingStatus.delay * 2);
+            Long retryAfter = (e instanceof StatusRetrievalException) ? ((StatusRetrievalException) e).getRetryAfter() : null;
+            long delay = (retryAfter != null) ? Math.max(pendingStatus.delay, retryAfter) : pendingStatus.delay;
+            reschedule(pendingStatus, Math.min(now + delay, deadline));
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if ((!"running".equals(status.getStatus()) && !"queued".equals(status.getStatus())) || now >= deadline) {
+            complete(pendingStatus);
+            pendingStatus.result.complete(status);
+            return;
+        }
+        pendingStatus.delay = Math.min(MAX_DELAY, pendingStatus.delay * 2);
+        long delay = (status.getRetryAfter() != null) ? Math.max(pendingStatus.delay, status.getRetryAfter()) : pendingStatus.delay;
+        pendingStatus.lastStatus = status;
+        // the last obtained status is returned at the deadline
+        reschedule(pendingStatus, Math.min(now + delay, deadline));
+    }
+
+    private synchronized long getDeadline() {
+        return deadline;
+    }
+
+    private synchronized void complete(PendingStatus pendingStatus) {
+        pendingStatuses.remove(pendingStatus);
+    }
+
+    private synchronized void reschedule(PendingStatus pendingStatus, long nextCheck) {
+        pendingStatus.nextCheck = nextCheck;
+    }
+
+    private static final class PendingStatus {
+
+        private final long testResultId;
+        private final CompletableFuture<TestResultPushStatus> result = new CompletableFuture<TestResultPushStatus>();
+        private long delay = INITIAL_DELAY;
+        private long nextCheck;
+        private TestResultPushStatus lastStatus;
+
+        private PendingStatus(long testResultId) {
+            this.testResultId = testResultId;
+            this.nextCheck = System.currentTimeMillis() + INITIAL_DELAY;
+        }
+    }
+}
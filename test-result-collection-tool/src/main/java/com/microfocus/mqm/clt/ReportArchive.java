@@ -0,0 +1,362 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads test reports packed in gzip, zip, tar or gzipped tar archives entry by entry, without extracting them.
+ * Archives are recognized by their content, not by the file name.
+ */
+public final class ReportArchive {
+
+    private static final int TAR_BLOCK = 512;
+    private static final String[] REPORT_EXTENSIONS = {".xml", ".trx", ".json"};
+
+    /**
+     * Handles a single report read from the archive.
+     */
+    public interface EntryHandler {
+
+        /**
+         * @param entry stream of the entry, it must not be read after the method returns
+         * @return number of handled test results
+         */
+        int handle(String entryName, InputStream entry) throws XMLStreamException, IOException, InterruptedException;
+    }
+
+    private ReportArchive() {
+    }
+
+    public static boolean isArchive(File file) throws IOException {
+        InputStream is = new BufferedInputStream(new FileInputStream(file));
+        try {
+            return isArchive(is);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    /**
+     * @param is stream supporting mark, reset back to its beginning
+     */
+    public static boolean isArchive(InputStream is) throws IOException {
+        return isGzip(is) || isZip(is) || isTar(is);
+    }
+
+    /**
+     * Passes every report of the archive to the handler. Entries without the .xml, .trx or .json extension are
+     * skipped, the content of a gzipped single report is passed regardless of its name.
+     *
+     * @return number of test results handled for all entries
+     */
+    public static int readReports(File archive, EntryHandler handler) throws XMLStreamException, IOException, InterruptedException {
+        return readReports(new BufferedInputStream(new FileInputStream(archive)), archive.getName(), handler);
+    }
+
+    /**
+     * Same as {@link #readReports(File, EntryHandler)} for an archive read from the stream, which is closed afterwards.
+     *
+     * @param is stream supporting mark
+     * @param archiveName file name of the archive, names the report of a gzipped single report
+     */
+    public static int readReports(InputStream is, String archiveName, EntryHandler handler) throws XMLStreamException, IOException, InterruptedException {
+        try {
+            boolean gzipped = isGzip(is);
+            if (gzipped) {
+                is = new BufferedInputStream(new GZIPInputStream(is));
+            }
+            if (isZip(is)) {
+                return readZip(is, handler);
+            } else if (isTar(is)) {
+                return readTar(is, handler);
+            } else if (gzipped) {
+                String name = archiveName.substring(0, archiveName.length() - (archiveName.toLowerCase(Locale.ROOT).endsWith(".gz") ? 3 : 0));
+                return handler.handle(name, CloseShieldInputStream.wrap(is));
+            }
+            throw new IOException("Unsupported archive format");
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    private static int readZip(InputStream is, EntryHandler handler) throws XMLStreamException, IOException, InterruptedException {
+        int testResultsCount = 0;
+        ZipInputStream zip = new ZipInputStream(is, StandardCharsets.UTF_8);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (!entry.isDirectory() && isReport(entry.getName())) {
+                testResultsCount += handler.handle(entry.getName(), CloseShieldInputStream.wrap(zip));
+            }
+        }
+        return testResultsCount;
+    }
+
+    /**
+     * Reads POSIX (ustar), GNU and pax archives. Only regular files are read, links and special files are skipped.
+     */
+    private static int readTar(InputStream is, EntryHandler handler) throws XMLStreamException, IOException, InterruptedException {
+        int testResultsCount = 0;
+        byte[] header = new byte[TAR_BLOCK];
+        String longName = null;
+        while (readBlock(is, header)) {
+            if (isZeroBlock(header)) {
+                break;
+            }
+            String name = (longName != null) ? longName : readTarName(header);
+            longName = null;
+            long size = parseOctal(header, 124, 12);
+            char type = (char) header[156];
+            TarEntryInputStream entry = new TarEntryInputStream(is, size);
+            if (type == 'L') {
+                // GNU long name of the following entry
+                longName = trimNul(new String(IOUtils.toByteArray(entry), StandardCharsets.UTF_8));
+            } else if (type == 'x') {
+                longName = readPaxPath(IOUtils.toByteArray(entry));
+            } else if ((type == '0' || type == '\0' || type == '7') && isReport(name)) {
+                testResultsCount += handler.handle(name, entry);
+            }
+            entry.skipRemaining();
+            IOUtils.skipFully(is, (TAR_BLOCK - size % TAR_BLOCK) % TAR_BLOCK);
+        }
+        return testResultsCount;
+    }
+
+    private static String readTarName(byte[] header) {
+        String name = readString(header, 0, 100);
+        if ("ustar".equals(readString(header, 257, 5))) {
+            String prefix = readString(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                return prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * @return path from the pax extended header records of the form "length path=value\n", null when missing
+     */
+    private static String readPaxPath(byte[] records) {
+        int pos = 0;
+        while (pos < records.length) {
+            int space = pos;
+            while (space < records.length && records[space] != ' ') {
+                space++;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(records, pos, space - pos, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (length <= 0 || pos + length > records.length) {
+                return null;
+            }
+            String record = new String(records, space + 1, pos + length - space - 2, StandardCharsets.UTF_8);
+            if (record.startsWith("path=")) {
+                return record.substring(5);
+            }
+            pos += length;
+        }
+        return null;
+    }
+
+    private static long parseOctal(byte[] header, int offset, int length) throws IOException {
+        if ((header[offset] & 0x80) != 0) {
+            // base-256 encoding of sizes over 8 GB
+            long value = header[offset] & 0x7f;
+            for (int i = 1; i < length; i++) {
+                value = (value << 8) | (header[offset + i] & 0xff);
+            }
+            return value;
+        }
+        String octal = readString(header, offset, length).trim();
+        try {
+            return octal.isEmpty() ? 0 : Long.parseLong(octal, 8);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid tar entry size: " + octal);
+        }
+    }
+
+    private static String readString(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static String trimNul(String value) {
+        int end = value.indexOf('\0');
+        return (end >= 0) ? value.substring(0, end) : value;
+    }
+
+    /**
+     * @return false at the end of the stream
+     */
+    private static boolean readBlock(InputStream is, byte[] block) throws IOException {
+        int read = IOUtils.read(is, block);
+        if (read == 0) {
+            return false;
+        } else if (read < block.length) {
+            throw new EOFException("Truncated tar archive");
+        }
+        return true;
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isReport(String entryName) {
+        String name = entryName.toLowerCase(Locale.ROOT);
+        for (String extension : REPORT_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the magic number and resets the stream back.
+     */
+    private static boolean isGzip(InputStream is) throws IOException {
+        is.mark(2);
+        boolean gzip = is.read() == 0x1f && is.read() == 0x8b;
+        is.reset();
+        return gzip;
+    }
+
+    private static boolean isZip(InputStream is) throws IOException {
+        is.mark(4);
+        boolean zip = is.read() == 'P' && is.read() == 'K' && is.read() == 3 && is.read() == 4;
+        is.reset();
+        return zip;
+    }
+
+    private static boolean isTar(InputStream is) throws IOException {
+        is.mark(TAR_BLOCK);
+        byte[] header = new byte[TAR_BLOCK];
+        int read = IOUtils.read(is, header);
+        is.reset();
+        // "ustar\0" of POSIX and "ustar  " of GNU archives
+        return read == TAR_BLOCK && readString(header, 257, 5).equals("ustar");
+    }
+
+    /**
+     * Stream of a single tar entry, closing it leaves the archive open.
+     */
+    private static final class TarEntryInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        private TarEntryInputStream(InputStream in, long size) {
+            super(in);
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated tar archive");
+            }
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read < 0) {
+                throw new EOFException("Truncated tar archive");
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // the archive is closed by its reader
+        }
+
+        private void skipRemaining() throws IOException {
+            IOUtils.skipFully(in, remaining);
+            remaining = 0;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input reports given on the command line. Besides regular files these can be the standard input, given as "-",
+ * and named pipes or other special files. Such stream inputs can be read only once.
+ */
+public final class ReportInput {
+
+    public static final String STDIN = "-";
+
+    private ReportInput() {
+    }
+
+    public static boolean isStdin(File report) {
+        return STDIN.equals(report.getPath());
+    }
+
+    /**
+     * @return true for inputs which can be read only once
+     */
+    public static boolean isStream(File report) {
+        return isStdin(report) || (report.exists() && !report.isFile() && !report.isDirectory());
+    }
+
+    public static boolean canRead(File report) {
+        return isStdin(report) || report.canRead();
+    }
+
+    /**
+     * Closing the stream of the standard input leaves the standard input open.
+     */
+    public static InputStream open(File report) throws IOException {
+        return isStdin(report) ? CloseShieldInputStream.wrap(System.in) : new FileInputStream(report);
+    }
+
+    /**
+     * @return path shown to the user
+     */
+    public static String getPath(File report) {
+        return isStdin(report) ? "standard input" : report.getAbsolutePath();
+    }
+}
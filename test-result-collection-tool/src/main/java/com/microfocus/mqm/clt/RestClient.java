@@ -32,9 +32,13 @@
 
 package com.microfocus.mqm.clt;
 
+import com.microfocus.mqm.clt.Exception.ReportConversionException;
+import com.microfocus.mqm.clt.Exception.StatusRetrievalException;
 import com.microfocus.mqm.clt.Exception.ValidationException;
+import com.microfocus.mqm.clt.authentication.AuthSession;
 import com.microfocus.mqm.clt.authentication.AuthenticationMethod;
 import com.microfocus.mqm.clt.authentication.JSONAuthenticationMethodImpl;
+import com.microfocus.mqm.clt.authentication.SessionCache;
 import com.microfocus.mqm.clt.authentication.TokenExchangeAuthenticationMethodImpl;
 import com.microfocus.mqm.clt.tests.TestResultPushStatus;
 import org.apache.commons.io.IOUtils;
@@ -46,11 +50,11 @@ import org.apache.http.client.CookieStore;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.GzipCompressingEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
@@ -60,16 +64,17 @@ import org.apache.http.conn.ssl.DefaultHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.cookie.Cookie;
 import org.apache.http.impl.client.*;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
-import org.apache.http.protocol.BasicHttpContext;
-import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContexts;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import javax.net.ssl.*;
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.security.KeyStore;
@@ -82,6 +87,7 @@ import java.security.cert.X509Certificate;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 public class RestClient {
@@ -100,26 +106,51 @@ public class RestClient {
 
     public static final int DEFAULT_CONNECTION_TIMEOUT = 20000; // in milliseconds
     public static final int DEFAULT_SO_TIMEOUT = 40000; // in milliseconds
+    static final int STATUS_SO_TIMEOUT = 10000; // in milliseconds
+    private static final int SSL_SESSION_CACHE_SIZE = 256;
+    private static SSLContext sharedSSLContext;
+
     private CookieStore cookieStore;
-    private Cookie AUTH_TOKEN;
+    private final SessionContext signInContext;
+    private final AtomicReference<SessionContext> sessionContext = new AtomicReference<>(SessionContext.forAuthToken(null));
 
     private CloseableHttpClient httpClient;
+    private RequestConfig requestConfig;
     private Settings settings;
 
-    private volatile boolean isLoggedIn = false;
+    private volatile boolean isCompressionRefused = false;
 
     private final AuthenticationMethod authenticationMethod;
+    private final SessionCache sessionCache;
+    private final AuthSession authSession;
+    private final RetryPolicy retryPolicy;
+    private final ConnectionPool connectionPool;
+    private final CountingSSLSocketFactory sslSocketFactory;
+    private final Http2Transport http2Transport;
 
     public RestClient(Settings settings) {
         this.settings = settings;
 
         HttpClientBuilder httpClientBuilder = HttpClients.custom();
-        if(settings.getServer().trim().toLowerCase().startsWith("https")){
-            configureSSLContext(httpClientBuilder);
+        if (settings.getServer().trim().toLowerCase().startsWith("https")) {
+            sslSocketFactory = new CountingSSLSocketFactory(getSSLContext(), new CustomHostnameVerifier());
+        } else {
+            sslSocketFactory = null;
         }
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", (sslSocketFactory != null) ? sslSocketFactory : SSLConnectionSocketFactory.getSocketFactory())
+                .build();
+        connectionPool = new ConnectionPool(settings, socketFactoryRegistry);
+        connectionPool.configure(httpClientBuilder);
+
+        // an invalid report is not sent again by the retries of the client on a broken connection either
+        httpClientBuilder.setRetryHandler((exception, executionCount, context) -> !(exception instanceof ReportConversionException)
+                && DefaultHttpRequestRetryHandler.INSTANCE.retryRequest(exception, executionCount, context));
 
         cookieStore = new BasicCookieStore();
         httpClientBuilder.setDefaultCookieStore(cookieStore);
+        signInContext = SessionContext.forCookieStore(cookieStore);
         RequestConfig.Builder requestConfigBuilder = RequestConfig.custom()
                 .setCookieSpec(CookieSpecs.STANDARD)
                 .setSocketTimeout(DEFAULT_SO_TIMEOUT)
@@ -130,6 +161,12 @@ public class RestClient {
         } else {
             this.authenticationMethod = new TokenExchangeAuthenticationMethodImpl();
         }
+        this.retryPolicy = new RetryPolicy(
+                (settings.getMaxRetries() != null) ? settings.getMaxRetries() : RetryPolicy.DEFAULT_MAX_RETRIES,
+                ((settings.getRetryTimeout() != null) ? settings.getRetryTimeout() : RetryPolicy.DEFAULT_RETRY_TIMEOUT) * 1000L);
+        this.sessionCache = (settings.getSessionCacheFile() != null) ? new SessionCache(new File(settings.getSessionCacheFile()), settings) : null;
+        this.authSession = new AuthSession(this::signIn, this::signOut, () -> (sessionCache != null) ? sessionCache.load() : null,
+                this::currentTimeMillis);
 
 
         // proxy setting
@@ -144,31 +181,40 @@ public class RestClient {
                 httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
             }
         }
-        httpClient = httpClientBuilder.setDefaultRequestConfig(requestConfigBuilder.build()).build();
+        requestConfig = requestConfigBuilder.build();
+        httpClient = httpClientBuilder.setDefaultRequestConfig(requestConfig).build();
+        http2Transport = settings.isHttp2() ? createHttp2Transport() : null;
 
     }
 
-    private void configureSSLContext(HttpClientBuilder httpClientBuilder) {
-        SSLContext sslContext;
-        try {
-            sslContext = SSLContext.getInstance("SSL");
-            sslContext.init(null, getTrustManagers(), new java.security.SecureRandom());
-        } catch (Exception e) {
-            sslContext = SSLContexts.createSystemDefault();
+    private Http2Transport createHttp2Transport() {
+        ProxySelector proxySelector = null;
+        if (StringUtils.isNotEmpty(settings.getProxyHost())) {
+            if (settings.getProxyUser() != null) {
+                // Java HTTP client does not support basic authentication of proxy tunnels by default
+                System.out.println("HTTP/2 is not supported with proxy authentication, using HTTP/1.1");
+                return null;
+            }
+            proxySelector = ProxySelector.of(new InetSocketAddress(settings.getProxyHost(), settings.getProxyPort()));
         }
-        HostnameVerifier hostnameVerifier = new CustomHostnameVerifier();
-        SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(sslContext, hostnameVerifier);
-        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
-                .register("http", PlainConnectionSocketFactory.getSocketFactory())
-                .register("https", sslSocketFactory)
-                .build();
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        return new Http2Transport(sslSocketFactory != null ? getSSLContext() : null, proxySelector);
+    }
 
-        //set new connection manager
-        httpClientBuilder.setConnectionManager(connectionManager);
+    // shared by all clients, so that the session cache of the context lets new connections resume TLS sessions
+    private static synchronized SSLContext getSSLContext() {
+        if (sharedSSLContext == null) {
+            try {
+                sharedSSLContext = SSLContext.getInstance("SSL");
+                sharedSSLContext.init(null, getTrustManagers(), new java.security.SecureRandom());
+            } catch (Exception e) {
+                sharedSSLContext = SSLContexts.createSystemDefault();
+            }
+            sharedSSLContext.getClientSessionContext().setSessionCacheSize(SSL_SESSION_CACHE_SIZE);
+        }
+        return sharedSSLContext;
     }
 
-    private TrustManager[] getTrustManagers() throws NoSuchAlgorithmException, KeyStoreException {
+    private static TrustManager[] getTrustManagers() throws NoSuchAlgorithmException, KeyStoreException {
         TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
         tmf.init((KeyStore) null);
         TrustManager[] tmArr = tmf.getTrustManagers();
@@ -233,11 +279,26 @@ public class RestClient {
 
     public long postTestResult(HttpEntity entity) throws IOException, ValidationException {
         HttpPost request = new HttpPost(createWorkspaceApiUri(URI_TEST_RESULT_PUSH, settings.isSkipErrors()));
-        request.setEntity(entity);
+        boolean compressed = settings.isCompress() && !isCompressionRefused;
+        request.setEntity(compressed ? new GzipCompressingEntity(entity) : entity);
         CloseableHttpResponse response = null;
         JSONObject jsonObject;
         try {
             response = execute(request);
+            if (compressed && response.getStatusLine().getStatusCode() == HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE) {
+                // server does not accept gzip content encoding, push this and all following test results uncompressed
+                HttpClientUtils.closeQuietly(response);
+                if (!isCompressionRefused) {
+                    isCompressionRefused = true;
+                    System.out.println("Compressed test result was refused by server, pushing test results uncompressed");
+                }
+                if (!entity.isRepeatable()) {
+                    // the body read from a pipe was consumed by the compressed attempt
+                    throw new ValidationException("Compressed test result was refused by server (415) and can not be sent again uncompressed");
+                }
+                request.setEntity(entity);
+                response = execute(request);
+            }
             String json = IOUtils.toString(response.getEntity().getContent(), "UTF-8");
             try {
                 jsonObject = new JSONObject(json);
@@ -266,13 +327,21 @@ public class RestClient {
         }
     }
 
+    /**
+     * Obtains the publish status in a single attempt with a short timeout. The status is polled repeatedly anyway,
+     * waiting for retries would only delay checks of the other test results.
+     */
     public TestResultPushStatus getTestResultStatus(long id) {
         HttpGet request = new HttpGet(createWorkspaceApiUri(URI_TEST_RESULT_STATUS, id));
+        request.setConfig(RequestConfig.copy(requestConfig).setSocketTimeout(STATUS_SO_TIMEOUT).build());
         CloseableHttpResponse response = null;
         try {
-            response = execute(request);
-            if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
-                throw new RuntimeException("Result status retrieval failed");
+            response = executeWithLogin(request);
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode != HttpStatus.SC_OK) {
+                // a throttled check is not repeated sooner than the server asks for
+                Long retryAfter = (statusCode == 429 || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE) ? RetryPolicy.getRetryAfter(response) : null;
+                throw new StatusRetrievalException("Result status retrieval failed", retryAfter);
             }
             String json = IOUtils.toString(response.getEntity().getContent(), "UTF-8");
             JSONObject jsonObject = new JSONObject(json);
@@ -284,7 +353,7 @@ public class RestClient {
                     throw new RuntimeException("Cannot obtain status", e);
                 }
             }
-            return new TestResultPushStatus(jsonObject.getString("status"), until, jsonObject.optString("errorDetails"));
+            return new TestResultPushStatus(jsonObject.getString("status"), until, jsonObject.optString("errorDetails"), RetryPolicy.getRetryAfter(response));
         } catch (IOException e) {
             throw new RuntimeException("Cannot obtain status.", e);
         } finally {
@@ -292,72 +361,154 @@ public class RestClient {
         }
     }
 
+    /**
+     * Executes the request, repeating it according to the retry policy when it fails on I/O error
+     * or on a transient server error.
+     */
     protected CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
-        if (!isLoggedIn) {
-            login();
+        long requestStarted = System.currentTimeMillis();
+        for (int attempt = 1; ; attempt++) {
+            CloseableHttpResponse response;
+            long delay;
+            try {
+                response = executeWithLogin(request);
+            } catch (IOException e) {
+                delay = retryPolicy.getRetryDelay(request, attempt, requestStarted, e);
+                if (delay < 0) {
+                    throw e;
+                }
+                System.out.println("Request to " + request.getURI().getPath() + " failed: " + e.getMessage() + ", retrying in " + delay + " ms");
+                waitBeforeRetry(delay);
+                continue;
+            }
+            delay = retryPolicy.getRetryDelay(request, attempt, requestStarted, response);
+            if (delay < 0) {
+                return response;
+            }
+            System.out.println("Request to " + request.getURI().getPath() + " failed with status code (" + response.getStatusLine().getStatusCode()
+                    + "), retrying in " + delay + " ms");
+            HttpClientUtils.closeQuietly(response);
+            waitBeforeRetry(delay);
+        }
+    }
+
+    private void waitBeforeRetry(long delay) throws InterruptedIOException {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry request");
         }
-        HttpContext localContext = new BasicHttpContext();
-        CookieStore localCookies = new BasicCookieStore();
-        localCookies.addCookie(AUTH_TOKEN);
-        localContext.setAttribute(HttpClientContext.COOKIE_STORE, localCookies);
+    }
+
+    private CloseableHttpResponse executeWithLogin(HttpUriRequest request) throws IOException {
+        // the session is refreshed before it expires, a large upload would be rejected and sent again otherwise
+        Cookie authToken = authSession.getCookie();
         addClientTypeHeader(request);
-        CloseableHttpResponse response = httpClient.execute(request, localContext);
-        if (isLoginNecessary(response)) { // if request fails with 401 do login and execute request again
+        CloseableHttpResponse response;
+        try {
+            response = send(request, getSessionContext(authToken));
+        } finally {
+            authSession.release(authToken);
+        }
+        // the body of a report read from a pipe was already consumed and can not be sent again
+        if (isLoginNecessary(response) && RetryPolicy.isRepeatable(request)) { // if request fails with 401 do login and execute request again
             HttpClientUtils.closeQuietly(response);
-            login();
-            localCookies.clear();
-            localCookies.addCookie(AUTH_TOKEN);
-            localContext.setAttribute(HttpClientContext.COOKIE_STORE, localCookies);
-            response = httpClient.execute(request, localContext);
+            authToken = authSession.refresh(authToken);
+            try {
+                response = send(request, getSessionContext(authToken));
+            } finally {
+                authSession.release(authToken);
+            }
         }
         return response;
     }
 
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private SessionContext getSessionContext(Cookie authToken) {
+        SessionContext context = sessionContext.get();
+        if (context.getAuthToken() != authToken) {
+            context = SessionContext.forAuthToken(authToken);
+            sessionContext.set(context);
+        }
+        return context;
+    }
+
+    private CloseableHttpResponse send(HttpUriRequest request, SessionContext context) throws IOException {
+        if (http2Transport != null) {
+            return http2Transport.execute(request, context.getCookieStore());
+        }
+        return httpClient.execute(request, context.createRequestContext());
+    }
+
     private boolean isLoginNecessary(HttpResponse response) {
         return response.getStatusLine().getStatusCode() == HttpStatus.SC_UNAUTHORIZED;
     }
 
-    protected synchronized void login() throws IOException {
+    protected void login() throws IOException {
+        authSession.signIn();
+    }
+
+    private Cookie signIn() throws IOException {
         HttpPost request = this.authenticationMethod.getLoginRequest(this.settings);
         HttpResponse response = null;
+        Cookie authToken;
         try {
             cookieStore.clear();
-            response = httpClient.execute(request);
+            response = send(request, signInContext);
             if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
                 throw new RuntimeException("Authentication failed: code=" + response.getStatusLine().getStatusCode() + "; reason=" + response.getStatusLine().getReasonPhrase());
             } else {
-                AUTH_TOKEN = this.authenticationMethod.handleCookies(request,response);
+                authToken = this.authenticationMethod.handleCookies(request,response);
             }
         } finally {
             HttpClientUtils.closeQuietly(response);
         }
-        isLoggedIn = true;
+        if (sessionCache != null) {
+            sessionCache.store(authToken);
+        }
+        return authToken;
     }
 
     public void release() throws IOException {
         logout();
+        if (settings.isConnectionStats()) {
+            if (http2Transport != null) {
+                System.out.println("Responses over HTTP/2: " + http2Transport.getHttp2Responses() + ", over HTTP/1.1: " + http2Transport.getHttp11Responses());
+            } else {
+                System.out.println("Connections leased: " + connectionPool.getLeased() + ", reused: " + connectionPool.getReused() +
+                        ", created: " + connectionPool.getCreated());
+                if (sslSocketFactory != null) {
+                    System.out.println("TLS handshakes: " + sslSocketFactory.getHandshakes() + ", resumed: " + sslSocketFactory.getResumed());
+                }
+            }
+        }
     }
 
-    protected synchronized void logout() throws IOException {
-        if (isLoggedIn) {
-            HttpPost post = new HttpPost(createBaseUri(URI_LOGOUT));
-            addClientTypeHeader(post);
-            HttpResponse response = null;
-            try {
-                HttpContext localContext = new BasicHttpContext();
-                CookieStore localCookies = new BasicCookieStore();
-                localCookies.addCookie(AUTH_TOKEN);
-                localContext.setAttribute(HttpClientContext.COOKIE_STORE, localCookies);
-
-                response = httpClient.execute(post,localContext);
-                if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK
-                        && response.getStatusLine().getStatusCode() != HttpStatus.SC_MOVED_TEMPORARILY) { // required until defect #2919 is fixed
-                    throw new RuntimeException("Logout failed: code=" + response.getStatusLine().getStatusCode() + "; reason=" + response.getStatusLine().getReasonPhrase());
-                }
-                isLoggedIn = false;
-            } finally {
-                HttpClientUtils.closeQuietly(response);
+    protected void logout() throws IOException {
+        Cookie authToken = authSession.getCurrentCookie();
+        // the session stays open for the following runs of the tool
+        if (authToken != null && sessionCache == null) {
+            signOut(authToken);
+            authSession.invalidate(authToken);
+        }
+    }
+
+    private void signOut(Cookie authToken) throws IOException {
+        HttpPost post = new HttpPost(createBaseUri(URI_LOGOUT));
+        addClientTypeHeader(post);
+        HttpResponse response = null;
+        try {
+            response = send(post, getSessionContext(authToken));
+            if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK
+                    && response.getStatusLine().getStatusCode() != HttpStatus.SC_MOVED_TEMPORARILY) { // required until defect #2919 is fixed
+                throw new RuntimeException("Logout failed: code=" + response.getStatusLine().getStatusCode() + "; reason=" + response.getStatusLine().getReasonPhrase());
             }
+        } finally {
+            HttpClientUtils.closeQuietly(response);
         }
     }
 
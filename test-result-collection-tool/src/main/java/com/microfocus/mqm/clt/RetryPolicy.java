@@ -0,0 +1,157 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import com.microfocus.mqm.clt.Exception.ReportConversionException;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a failed request is repeated and how long to wait before that. Delays grow exponentially
+ * with random jitter, unless the server asks for a specific delay by the Retry-After header. Retries of one
+ * request are limited by time, and the waiting of all requests together is limited by the total budget.
+ * A push is repeated after an I/O error only when it failed to connect, because the server may have accepted it already.
+ */
+public class RetryPolicy {
+
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final int DEFAULT_RETRY_TIMEOUT = 300; // in seconds
+
+    private static final long INITIAL_DELAY = 1000; // in milliseconds
+    private static final long MAX_DELAY = 30000; // in milliseconds
+    private static final long MAX_REQUEST_TIME = 120000; // in milliseconds
+
+    private final int maxRetries;
+    private final long totalBudget;
+    private final AtomicLong totalDelay = new AtomicLong();
+
+    public RetryPolicy(int maxRetries, long totalBudget) {
+        this.maxRetries = maxRetries;
+        this.totalBudget = totalBudget;
+    }
+
+    /**
+     * @param attempt number of attempts already made, starting with 1
+     * @return delay in milliseconds before the next attempt or -1 when the request should not be repeated
+     */
+    public long getRetryDelay(HttpUriRequest request, int attempt, long requestStarted, HttpResponse response) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode != HttpStatus.SC_BAD_GATEWAY && statusCode != HttpStatus.SC_SERVICE_UNAVAILABLE
+                && statusCode != HttpStatus.SC_GATEWAY_TIMEOUT && statusCode != 429) { // too many requests
+            return -1;
+        }
+        return getRetryDelay(request, attempt, requestStarted, getRetryAfter(response));
+    }
+
+    /**
+     * @see #getRetryDelay(HttpUriRequest, int, long, HttpResponse)
+     */
+    public long getRetryDelay(HttpUriRequest request, int attempt, long requestStarted, IOException exception) {
+        // these are configuration problems or invalid reports, repeating the request does not help
+        if (exception instanceof UnknownHostException || exception instanceof SSLException || exception instanceof ReportConversionException) {
+            return -1;
+        }
+        // the server may have accepted a push which failed after it was sent, for example on a read timeout or on a reset
+        // connection; pushing it again would duplicate the test results, so only a push which was not sent is repeated
+        if (request instanceof HttpEntityEnclosingRequest && !(exception instanceof ConnectException || exception instanceof ConnectTimeoutException)) {
+            return -1;
+        }
+        return getRetryDelay(request, attempt, requestStarted, (Long) null);
+    }
+
+    private long getRetryDelay(HttpUriRequest request, int attempt, long requestStarted, Long retryAfter) {
+        if (attempt > maxRetries || !isRepeatable(request)) {
+            return -1;
+        }
+        long delay = (retryAfter != null) ? retryAfter : getBackoff(attempt);
+        if (System.currentTimeMillis() - requestStarted + delay > MAX_REQUEST_TIME) {
+            return -1;
+        }
+        // only accepted delays are charged, a rejected long delay does not use up the budget of shorter ones
+        while (true) {
+            long spent = totalDelay.get();
+            if (spent + delay > totalBudget) {
+                return -1;
+            }
+            if (totalDelay.compareAndSet(spent, spent + delay)) {
+                return delay;
+            }
+        }
+    }
+
+    static boolean isRepeatable(HttpUriRequest request) {
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity == null || entity.isRepeatable();
+        }
+        return true;
+    }
+
+    private static long getBackoff(int attempt) {
+        long backoff = Math.min(MAX_DELAY, INITIAL_DELAY << Math.min(attempt - 1, 16));
+        // half of the delay is random, so that concurrent uploads do not retry at the same moment
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * @return delay in milliseconds requested by the Retry-After header of the response, or null
+     */
+    static Long getRetryAfter(HttpResponse response) {
+        Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (header == null) {
+            return null;
+        }
+        String value = header.getValue().trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(value);
+            return (date != null) ? Math.max(0, date.getTime() - System.currentTimeMillis()) : null;
+        }
+    }
+}
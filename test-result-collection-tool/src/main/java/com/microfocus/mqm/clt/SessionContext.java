@@ -0,0 +1,112 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Request context shared by all requests of an authenticated session, created once for every authentication
+ * cookie. Apache HttpClient stores per-request state in the context, so every request gets a child context
+ * which looks up the shared cookie store in this one.
+ */
+final class SessionContext {
+
+    private final Cookie authToken;
+    private final CookieStore cookieStore;
+    private final HttpContext parentContext = new BasicHttpContext();
+
+    private SessionContext(Cookie authToken, CookieStore cookieStore) {
+        this.authToken = authToken;
+        this.cookieStore = cookieStore;
+        parentContext.setAttribute(HttpClientContext.COOKIE_STORE, cookieStore);
+    }
+
+    static SessionContext forAuthToken(Cookie authToken) {
+        return new SessionContext(authToken, new SessionCookieStore(authToken));
+    }
+
+    static SessionContext forCookieStore(CookieStore cookieStore) {
+        return new SessionContext(null, cookieStore);
+    }
+
+    Cookie getAuthToken() {
+        return authToken;
+    }
+
+    CookieStore getCookieStore() {
+        return cookieStore;
+    }
+
+    HttpContext createRequestContext() {
+        return new BasicHttpContext(parentContext);
+    }
+
+    /**
+     * Contains only the authentication cookie, cookies set by responses are ignored as they were with
+     * the cookie store created for every request.
+     */
+    private static final class SessionCookieStore implements CookieStore {
+
+        private final List<Cookie> cookies;
+
+        private SessionCookieStore(Cookie authToken) {
+            cookies = (authToken != null) ? Collections.singletonList(authToken) : Collections.emptyList();
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+        }
+
+        @Override
+        public List<Cookie> getCookies() {
+            return cookies;
+        }
+
+        @Override
+        public boolean clearExpired(Date date) {
+            return false;
+        }
+
+        @Override
+        public void clear() {
+        }
+    }
+}
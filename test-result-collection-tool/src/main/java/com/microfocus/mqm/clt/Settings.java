@@ -74,6 +74,24 @@ public class Settings {
     private boolean internal = false;
     private boolean skipErrors = false;
     private String outputFile;
+    private boolean streamUpload = false;
+    private boolean compress = false;
+    private Integer conversionThreads;
+    private Integer maxConcurrentUploads;
+    private boolean batch = false;
+    private Integer maxPayloadTests;
+    private Long maxPayloadBytes;
+    private Integer maxStackTraceBytes;
+    private Integer maxMessageBytes;
+    private String sessionCacheFile;
+    private Integer maxRetries;
+    private Integer retryTimeout;
+    private Integer maxConnections;
+    private Integer connectionTtl;
+    private Integer idleTimeout;
+    private Integer keepAlive;
+    private boolean connectionStats = false;
+    private boolean http2 = false;
 
     private List<String> tags;
     private List<String> fields;
@@ -94,6 +112,8 @@ public class Settings {
     private String buildContextBuildId;
 
     private List<String> inputXmlFileNames;
+    private List<String> includes;
+    private List<String> excludes;
 
     private byte[] accessToken;
 
@@ -260,6 +280,150 @@ public class Settings {
         this.outputFile = outputFile;
     }
 
+    public boolean isStreamUpload() {
+        return streamUpload;
+    }
+
+    public void setStreamUpload(boolean streamUpload) {
+        this.streamUpload = streamUpload;
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public Integer getConversionThreads() {
+        return conversionThreads;
+    }
+
+    public void setConversionThreads(Integer conversionThreads) {
+        this.conversionThreads = conversionThreads;
+    }
+
+    public Integer getMaxConcurrentUploads() {
+        return maxConcurrentUploads;
+    }
+
+    public void setMaxConcurrentUploads(Integer maxConcurrentUploads) {
+        this.maxConcurrentUploads = maxConcurrentUploads;
+    }
+
+    public boolean isBatch() {
+        return batch;
+    }
+
+    public void setBatch(boolean batch) {
+        this.batch = batch;
+    }
+
+    public Integer getMaxPayloadTests() {
+        return maxPayloadTests;
+    }
+
+    public void setMaxPayloadTests(Integer maxPayloadTests) {
+        this.maxPayloadTests = maxPayloadTests;
+    }
+
+    public Long getMaxPayloadBytes() {
+        return maxPayloadBytes;
+    }
+
+    public void setMaxPayloadBytes(Long maxPayloadBytes) {
+        this.maxPayloadBytes = maxPayloadBytes;
+    }
+
+    public Integer getMaxStackTraceBytes() {
+        return maxStackTraceBytes;
+    }
+
+    public void setMaxStackTraceBytes(Integer maxStackTraceBytes) {
+        this.maxStackTraceBytes = maxStackTraceBytes;
+    }
+
+    public Integer getMaxMessageBytes() {
+        return maxMessageBytes;
+    }
+
+    public void setMaxMessageBytes(Integer maxMessageBytes) {
+        this.maxMessageBytes = maxMessageBytes;
+    }
+
+    public String getSessionCacheFile() {
+        return sessionCacheFile;
+    }
+
+    public void setSessionCacheFile(String sessionCacheFile) {
+        this.sessionCacheFile = sessionCacheFile;
+    }
+
+    public Integer getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(Integer maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public Integer getRetryTimeout() {
+        return retryTimeout;
+    }
+
+    public void setRetryTimeout(Integer retryTimeout) {
+        this.retryTimeout = retryTimeout;
+    }
+
+    public Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(Integer maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public Integer getConnectionTtl() {
+        return connectionTtl;
+    }
+
+    public void setConnectionTtl(Integer connectionTtl) {
+        this.connectionTtl = connectionTtl;
+    }
+
+    public Integer getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Integer idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Integer getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(Integer keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public boolean isConnectionStats() {
+        return connectionStats;
+    }
+
+    public void setConnectionStats(boolean connectionStats) {
+        this.connectionStats = connectionStats;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
     public List<String> getTags() {
         return tags;
     }
@@ -358,6 +522,22 @@ public class Settings {
         this.inputXmlFileNames = inputXmlFileNames;
     }
 
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    public void setIncludes(List<String> includes) {
+        this.includes = includes;
+    }
+
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    public void setExcludes(List<String> excludes) {
+        this.excludes = excludes;
+    }
+
     /**
      * To be used by tests only.
      */
@@ -33,88 +33,298 @@
 package com.microfocus.mqm.clt;
 
 import com.microfocus.mqm.clt.Exception.ValidationException;
-import com.microfocus.mqm.clt.tests.TestResult;
 import com.microfocus.mqm.clt.tests.TestResultPushStatus;
+import com.microfocus.mqm.clt.xml.TestResultXmlWriter;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentProducer;
 import org.apache.http.entity.ContentType;
+import org.apache.http.entity.EntityTemplate;
 import org.apache.http.entity.FileEntity;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class TestResultCollectionTool {
 
+    public static final int DEFAULT_MAX_PAYLOAD_TESTS = 5000;
+    public static final long DEFAULT_MAX_PAYLOAD_BYTES = 10 * 1024 * 1024;
+    private static final String UNKNOWN_STATUS = "unknown";
+
     private Settings settings;
     private RestClient client;
+    private ExecutorService uploadExecutor;
+    private PublishStatusPoller statusPoller;
+    private final Map<String, Integer> publishStatusCounts = new LinkedHashMap<String, Integer>();
+    private volatile boolean isConversionFailed = false;
 
     public TestResultCollectionTool(Settings settings) {
         this.settings = settings;
     }
 
     public void collectAndPushTestResults() {
-        Map<File, String> publicApiXMLs = new LinkedHashMap<File, String>();
-        if (settings.isInternal()) {
-            for (String fileName : settings.getInputXmlFileNames()) {
-                publicApiXMLs.put(new File(fileName), fileName);
+        if (!settings.isInternal() && settings.getOutputFile() != null) {
+            try {
+                processJunitReports(new InputDiscovery(settings).start(), new File(settings.getOutputFile()));
+            } catch (ValidationException e) {
+                System.out.println(e.getMessage());
+                System.exit(ReturnCode.FAILURE.getReturnCode());
+            } catch (InterruptedException e) {
+                System.out.println("Thread was interrupted: " + e.getMessage());
+                System.exit(ReturnCode.FAILURE.getReturnCode());
             }
-        } else if (settings.getOutputFile() != null) {
-            processJunitReport(new File(settings.getInputXmlFileNames().get(0)), new File(settings.getOutputFile()));
             System.out.println("JUnit report was saved to the output file");
             System.exit(ReturnCode.SUCCESS.getReturnCode());
-        } else {
-            for (String fileName : settings.getInputXmlFileNames()) {
-                File publicApiTempXML = null;
-                try {
-                    publicApiTempXML = File.createTempFile("testResult.xml", null);
-                    publicApiTempXML.deleteOnExit();
-                } catch (IOException e) {
-                    System.out.println("Can not create temp file for test result");
-                    System.exit(ReturnCode.FAILURE.getReturnCode());
-                }
-                processJunitReport(new File(fileName), publicApiTempXML);
-                publicApiXMLs.put(publicApiTempXML, fileName);
-            }
         }
 
         client = new RestClient(settings);
+        int maxConcurrentUploads = (settings.getMaxConcurrentUploads() != null) ? settings.getMaxConcurrentUploads() : 1;
+        uploadExecutor = Executors.newFixedThreadPool(maxConcurrentUploads);
+        if (settings.isCheckResult()) {
+            int timeout = (settings.getCheckResultTimeout() != null) ? settings.getCheckResultTimeout() : 10;
+            statusPoller = new PublishStatusPoller(client, timeout * 1000L);
+        }
+        ExecutorService conversionExecutor = createConversionExecutor();
+        // conversions of discovered files start while the input directories are still being walked
+        InputDiscovery discovery = new InputDiscovery(settings).start();
         try {
-            for (Map.Entry<File, String> publicApiXML : publicApiXMLs.entrySet()) {
-                long testResultId;
-                try {
-                    testResultId = client.postTestResult(new FileEntity(publicApiXML.getKey(), ContentType.APPLICATION_XML));
-                } catch (ValidationException e) {
-                    // One invalid public API XML should not stop the whole process when supplied externally
-                    System.out.println("Test result from file '" + publicApiXML.getValue() + "' was not pushed");
-                    System.out.println(e.getMessage());
-                    continue;
+            List<String> labels = new LinkedList<String>();
+            List<Future<ConversionResult>> conversions = new LinkedList<Future<ConversionResult>>();
+            String fileName;
+            if (settings.isInternal()) {
+                while ((fileName = discovery.next()) != null) {
+                    final File file = new File(fileName);
+                    labels.add(fileName);
+                    conversions.add(createPushedResult(!ReportInput.isStream(file) ? new FileEntity(file, ContentType.APPLICATION_XML)
+                            : createStreamEntity(outputStream -> {
+                                try (InputStream is = ReportInput.open(file)) {
+                                    IOUtils.copy(is, outputStream);
+                                }
+                            })));
+                }
+            } else if (settings.isStreamUpload()) {
+                while ((fileName = discovery.next()) != null) {
+                    File file = new File(fileName);
+                    JunitReportContentProducer producer = new JunitReportContentProducer(file, settings);
+                    labels.add(fileName);
+                    conversions.add(createPushedResult(ReportInput.isStream(file) ? createStreamEntity(producer) : createEntity(producer)));
                 }
-                if (settings.isCheckResult()) {
-                    validatePublishResult(testResultId, publicApiXML.getValue());
-                } else {
-                    System.out.println("Test result from file '" + publicApiXML.getValue() + "' was pushed to the server with ID " + testResultId);
+            } else if (settings.isBatch()) {
+                convertBatches(discovery, new BatchTarget(labels, conversions));
+            } else {
+                while ((fileName = discovery.next()) != null) {
+                    labels.add(fileName);
+                    conversions.add(conversionExecutor.submit(createConversion(Collections.singletonList(fileName))));
                 }
             }
-        } catch (IOException e) {
+            if (discovery.isFailed()) {
+                isConversionFailed = true;
+            }
+            if (labels.isEmpty() && !isConversionFailed) {
+                System.out.println("No readable files with tests to push");
+                isConversionFailed = true;
+            }
+
+            // results are reported in the order of the input files, regardless of the order the pushes finish
+            Iterator<String> labelsIterator = labels.iterator();
+            for (Future<ConversionResult> conversion : conversions) {
+                reportResult(conversion.get(), labelsIterator.next());
+            }
+            if (!publishStatusCounts.isEmpty()) {
+                List<String> statusCounts = new LinkedList<String>();
+                for (Map.Entry<String, Integer> statusCount : publishStatusCounts.entrySet()) {
+                    statusCounts.add(statusCount.getKey() + ": " + statusCount.getValue());
+                }
+                System.out.println("Injection status summary - " + StringUtils.join(statusCounts, ", "));
+            }
+        } catch (ExecutionException e) {
             releaseClient();
-            System.out.println("Unable to push test result: " + e.getMessage());
-            if(e.getMessage().contains("access_denied")){
+            System.out.println("Unable to push test result: " + e.getCause().getMessage());
+            if (e.getCause() instanceof IOException && StringUtils.contains(e.getCause().getMessage(), "access_denied")) {
                 System.out.println("Validate proxy configuration.");
             }
             System.exit(ReturnCode.FAILURE.getReturnCode());
-        } catch (RuntimeException e) {
+        } catch (InterruptedException e) {
             releaseClient();
-            System.out.println("Unable to push test result: " + e.getMessage());
+            System.out.println("Thread was interrupted: " + e.getMessage());
             System.exit(ReturnCode.FAILURE.getReturnCode());
         } finally {
+            conversionExecutor.shutdownNow();
+            uploadExecutor.shutdownNow();
+            if (statusPoller != null) {
+                statusPoller.shutdown();
+            }
             releaseClient();
         }
+        if (isConversionFailed) {
+            System.exit(ReturnCode.FAILURE.getReturnCode());
+        }
+    }
+
+    private void reportResult(ConversionResult result, String label) throws InterruptedException, ExecutionException {
+        int part = 1;
+        for (Future<PushResult> push : result.pushes) {
+            String partInfo = (result.pushes.size() > 1) ? " (part " + part++ + " of " + result.pushes.size() + ")" : "";
+            PushResult pushResult = push.get();
+            String publishResult = (pushResult.publishResult != null) ? describePublishResult(pushResult.publishResult) : "";
+            System.out.println("Test result from file '" + label + "'" + partInfo + " " + pushResult.message + publishResult);
+        }
+        if (result.failure != null) {
+            // One invalid JUnit report should not stop pushing of the others
+            isConversionFailed = true;
+            System.out.println("Test result from file '" + label + "' was not pushed" + (result.pushes.isEmpty() && !result.isPushedPartially ? "" : " completely"));
+            System.out.println(result.failure);
+        }
+    }
+
+    /**
+     * Merges multiple JUnit reports into batches limited by the number of test runs and size. The reports are
+     * converted once, one after another, into a document split into chunks, every chunk is a batch pushed as soon
+     * as it is full. A report which can not be converted is removed from the current batch, so invalid reports
+     * are skipped; only the parts of a report already pushed in the previous batches remain on the server.
+     */
+    private void convertBatches(InputDiscovery discovery, BatchTarget batchTarget) throws InterruptedException {
+        int maxPayloadTests = (settings.getMaxPayloadTests() != null) ? settings.getMaxPayloadTests() : DEFAULT_MAX_PAYLOAD_TESTS;
+        long maxPayloadBytes = (settings.getMaxPayloadBytes() != null) ? settings.getMaxPayloadBytes() : DEFAULT_MAX_PAYLOAD_BYTES;
+        TestResultXmlWriter testResultXmlWriter = new TestResultXmlWriter(batchTarget, maxPayloadTests, maxPayloadBytes);
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        String fileName;
+        while ((fileName = discovery.next()) != null) {
+            batchTarget.startReport(fileName);
+            try {
+                testResultXmlWriter.mark();
+                xmlProcessor.convertJunitTestReport(new File(fileName), settings, testResultXmlWriter);
+            } catch (ValidationException | XMLStreamException | IOException e) {
+                String failure = (e instanceof ValidationException) ? e.getMessage() : "Unable to write the batch: " + e.getMessage();
+                String label = fileName;
+                boolean isRemoved;
+                try {
+                    isRemoved = testResultXmlWriter.rollback();
+                } catch (XMLStreamException rollbackException) {
+                    // the whole batch is dropped, the reports merged into it before are not pushed either
+                    testResultXmlWriter.discard();
+                    label = batchTarget.getBatchLabel();
+                    isRemoved = false;
+                }
+                batchTarget.reportFailed(label, failure, isRemoved);
+            }
+        }
+        try {
+            testResultXmlWriter.close();
+        } catch (XMLStreamException | IOException e) {
+            batchTarget.reportFailed(batchTarget.getBatchLabel(), "Unable to write the batch: " + e.getMessage(), true);
+        }
+    }
+
+    private ExecutorService createConversionExecutor() {
+        int threads = (settings.getConversionThreads() != null) ? settings.getConversionThreads() : Runtime.getRuntime().availableProcessors();
+        // the number of input files is not known in advance, threads of the pool are started only when needed
+        return Executors.newFixedThreadPool(Math.max(1, threads));
+    }
+
+    /**
+     * Converts JUnit reports to temporary files. A report exceeding the payload limits is split into chunks
+     * and every chunk is pushed as soon as it is converted, while the rest of the report is still being processed.
+     */
+    private Callable<ConversionResult> createConversion(final List<String> fileNames) {
+        int maxPayloadTests = (settings.getMaxPayloadTests() != null) ? settings.getMaxPayloadTests() : Integer.MAX_VALUE;
+        long maxPayloadBytes = (settings.getMaxPayloadBytes() != null) ? settings.getMaxPayloadBytes() : Long.MAX_VALUE;
+        return new Callable<ConversionResult>() {
+            @Override
+            public ConversionResult call() {
+                final ConversionResult result = new ConversionResult();
+                List<File> junitReports = new LinkedList<File>();
+                for (String fileName : fileNames) {
+                    junitReports.add(new File(fileName));
+                }
+                TestResultXmlWriter.ChunkTarget chunkTarget = new TestResultXmlWriter.ChunkTarget() {
+                    private File publicApiTempXML;
+
+                    @Override
+                    public OutputStream openChunk() throws IOException {
+                        publicApiTempXML = File.createTempFile("testResult.xml", null);
+                        publicApiTempXML.deleteOnExit();
+                        return new FileOutputStream(publicApiTempXML);
+                    }
+
+                    @Override
+                    public void chunkCompleted(int testResultsCount) {
+                        result.pushes.add(submitPush(publicApiTempXML));
+                    }
+                };
+                try {
+                    new XmlProcessor().convertJunitTestReports(junitReports, settings, chunkTarget, maxPayloadTests, maxPayloadBytes);
+                } catch (ValidationException e) {
+                    result.failure = e.getMessage();
+                }
+                return result;
+            }
+        };
+    }
+
+    private Future<PushResult> submitPush(final File publicApiTempXML) {
+        return uploadExecutor.submit(new Callable<PushResult>() {
+            @Override
+            public PushResult call() throws IOException {
+                try {
+                    return pushTestResult(new FileEntity(publicApiTempXML, ContentType.APPLICATION_XML));
+                } finally {
+                    publicApiTempXML.delete();
+                }
+            }
+        });
+    }
+
+    private static HttpEntity createEntity(ContentProducer producer) {
+        EntityTemplate entity = new EntityTemplate(producer);
+        entity.setContentType(ContentType.APPLICATION_XML.toString());
+        return entity;
+    }
+
+    /**
+     * Creates the entity of a report read from the standard input or a pipe. It can be written only once,
+     * so a failed push is not retried.
+     */
+    private static HttpEntity createStreamEntity(ContentProducer producer) {
+        EntityTemplate entity = new EntityTemplate(producer) {
+            @Override
+            public boolean isRepeatable() {
+                return false;
+            }
+        };
+        entity.setContentType(ContentType.APPLICATION_XML.toString());
+        return entity;
+    }
+
+    private Future<ConversionResult> createPushedResult(final HttpEntity publicApiXML) {
+        ConversionResult result = new ConversionResult();
+        result.pushes.add(uploadExecutor.submit(new Callable<PushResult>() {
+            @Override
+            public PushResult call() throws IOException {
+                return pushTestResult(publicApiXML);
+            }
+        }));
+        return CompletableFuture.completedFuture(result);
     }
 
     private void releaseClient() {
@@ -143,39 +353,136 @@ public class TestResultCollectionTool {
          }
      }
 
-    private void validatePublishResult(long testResultId, String fileName) {
-        TestResultPushStatus publishResult = null;
+    /**
+     * Pushes the test result without waiting for the server to process it. The publish result is checked
+     * in the background, so that the following test results can be pushed in the meantime.
+     */
+    private PushResult pushTestResult(HttpEntity publicApiXML) throws IOException {
+        long testResultId;
         try {
-            publishResult = getPublishResult(testResultId);
-        } catch (InterruptedException e) {
-            System.out.println("Thread was interrupted: " + e.getMessage());
-            System.exit(ReturnCode.FAILURE.getReturnCode());
+            testResultId = client.postTestResult(publicApiXML);
+        } catch (ValidationException e) {
+            // One invalid public API XML should not stop the whole process when supplied externally
+            return new PushResult("was not pushed" + System.lineSeparator() + e.getMessage(), null);
         }
-        if (publishResult == null) {
-            System.out.println("Unable to verify publish result of the last push from file '" + fileName + "' with ID: " + testResultId);
+        return new PushResult("was pushed to the server with ID " + testResultId, settings.isCheckResult() ? statusPoller.watch(testResultId) : null);
+    }
+
+    private String describePublishResult(Future<TestResultPushStatus> publishResult) throws InterruptedException {
+        TestResultPushStatus status;
+        try {
+            status = publishResult.get();
+        } catch (ExecutionException e) {
+            // the test result was pushed, only its status is not known, the other pushes are still reported
+            publishStatusCounts.put(UNKNOWN_STATUS, publishStatusCounts.containsKey(UNKNOWN_STATUS) ? publishStatusCounts.get(UNKNOWN_STATUS) + 1 : 1);
+            return ", unable to verify injection status: " + e.getCause().getMessage();
         }
-        System.out.println("Test result from file '" + fileName + "' was pushed to the server with ID " + testResultId + ", injection status is '" + publishResult.getStatus() + "'"
-                + (StringUtils.isNotEmpty(publishResult.getErrorMessage()) ? ", error message is '" + publishResult.getErrorMessage() + "'" : ""));
+        String statusName = status.getStatus();
+        publishStatusCounts.put(statusName, publishStatusCounts.containsKey(statusName) ? publishStatusCounts.get(statusName) + 1 : 1);
+        return ", injection status is '" + statusName + "'"
+                + (StringUtils.isNotEmpty(status.getErrorMessage()) ? ", error message is '" + status.getErrorMessage() + "'" : "");
     }
 
-    private void processJunitReport(File junitReport, File outputFile) {
+    /**
+     * Converts all reports found for the single input to the output file.
+     */
+    private void processJunitReports(InputDiscovery discovery, File outputFile) throws ValidationException, InterruptedException {
+        List<File> junitReports = new LinkedList<File>();
+        String fileName;
+        while ((fileName = discovery.next()) != null) {
+            junitReports.add(new File(fileName));
+        }
+        if (junitReports.isEmpty()) {
+            throw new ValidationException("No readable files with tests to convert");
+        }
         XmlProcessor xmlProcessor = new XmlProcessor();
-        List<TestResult> testResults = new LinkedList<TestResult>();
-        testResults.addAll(xmlProcessor.processJunitTestReport(junitReport, settings.getStarted()));
-        xmlProcessor.writeTestResults(testResults, settings, outputFile);
+        xmlProcessor.convertJunitTestReports(junitReports, settings, outputFile);
+        if (discovery.isFailed()) {
+            throw new ValidationException("Not all input files could be found, the output file is incomplete");
+        }
     }
 
-    private TestResultPushStatus getPublishResult(long id) throws InterruptedException {
-        TestResultPushStatus testResultPushStatus = null;
-        int timeout = (settings.getCheckResultTimeout() != null) ? settings.getCheckResultTimeout() : 10;
-        for (int i = 0; i < timeout * 10; i++) {
-            testResultPushStatus = client.getTestResultStatus(id);
-            String status = testResultPushStatus.getStatus();
-            if (!"running".equals(status) && !"queued".equals(status)) {
-                break;
+    private static final class ConversionResult {
+
+        private final List<Future<PushResult>> pushes = new LinkedList<Future<PushResult>>();
+        private String failure;
+        private boolean isPushedPartially;
+    }
+
+    /**
+     * Pushes every completed batch and keeps track of the reports merged into it. Batches and failed reports are
+     * reported in the order they are completed.
+     */
+    private final class BatchTarget implements TestResultXmlWriter.ChunkTarget {
+
+        private final List<String> labels;
+        private final List<Future<ConversionResult>> conversions;
+        private List<String> batchFileNames = new LinkedList<String>();
+        private String reportFileName;
+        private File publicApiTempXML;
+
+        private BatchTarget(List<String> labels, List<Future<ConversionResult>> conversions) {
+            this.labels = labels;
+            this.conversions = conversions;
+        }
+
+        private void startReport(String fileName) {
+            reportFileName = fileName;
+            if (publicApiTempXML != null) {
+                batchFileNames.add(fileName);
+            }
+        }
+
+        @Override
+        public OutputStream openChunk() throws IOException {
+            publicApiTempXML = File.createTempFile("testResult.xml", null);
+            publicApiTempXML.deleteOnExit();
+            // the chunk is opened by the first test run written to it
+            batchFileNames = new LinkedList<String>();
+            batchFileNames.add(reportFileName);
+            return new FileOutputStream(publicApiTempXML);
+        }
+
+        @Override
+        public void chunkCompleted(int testResultsCount) {
+            File completed = publicApiTempXML;
+            publicApiTempXML = null;
+            if (testResultsCount == 0) {
+                // all reports merged into the batch were removed
+                completed.delete();
+                return;
+            }
+            ConversionResult result = new ConversionResult();
+            result.pushes.add(submitPush(completed));
+            labels.add(getBatchLabel());
+            conversions.add(CompletableFuture.completedFuture(result));
+            batchFileNames = new LinkedList<String>();
+        }
+
+        private void reportFailed(String label, String failure, boolean isRemoved) {
+            if (!batchFileNames.isEmpty() && batchFileNames.get(batchFileNames.size() - 1).equals(label)) {
+                batchFileNames.remove(batchFileNames.size() - 1);
             }
-            Thread.sleep(100);
+            ConversionResult result = new ConversionResult();
+            result.failure = failure;
+            result.isPushedPartially = !isRemoved;
+            labels.add(label);
+            conversions.add(CompletableFuture.completedFuture(result));
+        }
+
+        private String getBatchLabel() {
+            return StringUtils.join(batchFileNames, "', '");
+        }
+    }
+
+    private static final class PushResult {
+
+        private final String message;
+        private final Future<TestResultPushStatus> publishResult;
+
+        private PushResult(String message, Future<TestResultPushStatus> publishResult) {
+            this.message = message;
+            this.publishResult = publishResult;
         }
-        return testResultPushStatus;
     }
 }
@@ -32,52 +32,213 @@
 
 package com.microfocus.mqm.clt;
 
+import com.microfocus.mqm.clt.Exception.ValidationException;
 import com.microfocus.mqm.clt.tests.TestResult;
-import com.microfocus.mqm.clt.xml.JunitXmlIterator;
+import com.microfocus.mqm.clt.xml.ReportFormats;
+import com.microfocus.mqm.clt.xml.ReportIterator;
 import com.microfocus.mqm.clt.xml.TestResultXmlWriter;
+import org.apache.commons.io.IOUtils;
 
 import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
 public class XmlProcessor {
 
     public List<TestResult> processJunitTestReport(File junitTestReport, Long started) {
-        if (junitTestReport == null || !junitTestReport.canRead()) {
-            String filePathInfo = (junitTestReport == null) ? "" : ": " + junitTestReport.getAbsolutePath();
+        if (junitTestReport == null || !ReportInput.canRead(junitTestReport)) {
+            String filePathInfo = (junitTestReport == null) ? "" : ": " + ReportInput.getPath(junitTestReport);
             System.out.println("Can not read the JUnit XML file" + filePathInfo);
             System.exit(ReturnCode.FAILURE.getReturnCode());
         }
 
         List<TestResult> testResults = new LinkedList<TestResult>();
         try {
-            JunitXmlIterator iterator = new JunitXmlIterator(junitTestReport, started);
-            while (iterator.hasNext()) {
-                testResults.add(iterator.next());
-            }
+            readTestResults(junitTestReport, started, Integer.MAX_VALUE, Integer.MAX_VALUE, testResults::add);
         } catch (IOException e) {
-            System.out.println("Unable to process JUnit XML file '" + junitTestReport.getAbsolutePath() + "': " + e.getMessage());
+            System.out.println("Unable to process JUnit XML file '" + ReportInput.getPath(junitTestReport) + "': " + e.getMessage());
             System.exit(ReturnCode.FAILURE.getReturnCode());
         } catch (XMLStreamException e) {
-            System.out.println("Unable to process JUnit XML file '" + junitTestReport.getAbsolutePath() + "', XML stream exception has occurred: " + e.getMessage());
+            System.out.println("Unable to process JUnit XML file '" + ReportInput.getPath(junitTestReport) + "', XML stream exception has occurred: " + e.getMessage());
             System.exit(ReturnCode.FAILURE.getReturnCode());
         } catch (InterruptedException e) {
-            System.out.println("Unable to process JUnit XML file '" + junitTestReport.getAbsolutePath() + "', thread was interrupted: " + e.getMessage());
+            System.out.println("Unable to process JUnit XML file '" + ReportInput.getPath(junitTestReport) + "', thread was interrupted: " + e.getMessage());
             System.exit(ReturnCode.FAILURE.getReturnCode());
         } catch (RuntimeException e) {
-            System.out.println("Unable to process JUnit XML file '" + junitTestReport.getAbsolutePath() + "', XSD validation was not successful: " + e.getMessage());
+            System.out.println("Unable to process JUnit XML file '" + ReportInput.getPath(junitTestReport) + "', XSD validation was not successful: " + e.getMessage());
             System.exit(ReturnCode.FAILURE.getReturnCode());
         }
 
         if (testResults.isEmpty()) {
-            System.out.println("No valid test results to push in JUnit XML file '" + junitTestReport.getAbsolutePath() + "'");
+            System.out.println("No valid test results to push in JUnit XML file '" + ReportInput.getPath(junitTestReport) + "'");
             System.exit(ReturnCode.FAILURE.getReturnCode());
         }
         return testResults;
     }
 
+    /**
+     * Converts JUnit report to the API internal XML format. Every parsed test result is written to the target
+     * file right away, so memory consumption does not depend on the size of the report.
+     *
+     * @throws ValidationException when the report can not be converted, message describes the reason
+     */
+    public void convertJunitTestReport(File junitTestReport, Settings settings, File targetPath) throws ValidationException {
+        convertJunitTestReports(Collections.singletonList(junitTestReport), settings, targetPath);
+    }
+
+    /**
+     * Converts JUnit reports to a single document in the API internal XML format. The build context and fields
+     * are written only once for all of them.
+     *
+     * @return number of converted test results
+     * @throws ValidationException when any of the reports can not be converted, message describes the reason
+     */
+    public int convertJunitTestReports(List<File> junitTestReports, Settings settings, File targetPath) throws ValidationException {
+        if (targetPath == null || !targetPath.canWrite()) {
+            String filePathInfo = (targetPath == null) ? "" : ": " + targetPath.getAbsolutePath();
+            throw new ValidationException("Can not write test results to file" + filePathInfo);
+        }
+        return convertJunitTestReports(junitTestReports, settings, new TestResultXmlWriter(targetPath));
+    }
+
+    /**
+     * Converts JUnit report to the API internal XML format written to the target stream.
+     *
+     * @return number of converted test results
+     * @throws ValidationException when the report can not be converted, message describes the reason
+     */
+    public int convertJunitTestReport(File junitTestReport, Settings settings, OutputStream targetStream) throws ValidationException {
+        return convertJunitTestReports(Collections.singletonList(junitTestReport), settings, new TestResultXmlWriter(targetStream));
+    }
+
+    /**
+     * Converts JUnit reports to documents in the API internal XML format, a new document is started whenever
+     * the current one reaches the chunk limits. Every completed chunk is passed to the chunk target right away,
+     * an incomplete chunk of a report which fails to convert is discarded.
+     *
+     * @return number of converted test results
+     * @throws ValidationException when any of the reports can not be converted, message describes the reason
+     */
+    public int convertJunitTestReports(List<File> junitTestReports, Settings settings, TestResultXmlWriter.ChunkTarget chunkTarget,
+                                       int maxChunkTestResults, long maxChunkBytes) throws ValidationException {
+        return convertJunitTestReports(junitTestReports, settings, new TestResultXmlWriter(chunkTarget, maxChunkTestResults, maxChunkBytes));
+    }
+
+    private int convertJunitTestReports(List<File> junitTestReports, Settings settings, TestResultXmlWriter testResultXmlWriter) throws ValidationException {
+        int testResultsCount = 0;
+        try {
+            for (File junitTestReport : junitTestReports) {
+                testResultsCount += convertJunitTestReport(junitTestReport, settings, testResultXmlWriter);
+            }
+        } catch (ValidationException e) {
+            testResultXmlWriter.discard();
+            throw e;
+        }
+        try {
+            testResultXmlWriter.close();
+        } catch (XMLStreamException | IOException e) {
+            throw new ValidationException("Can not close the converted test results: " + e.getMessage());
+        }
+        return testResultsCount;
+    }
+
+    /**
+     * Converts JUnit report into the document of the writer, which may already contain test results of other reports.
+     *
+     * @return number of converted test results
+     * @throws ValidationException when the report can not be converted, message describes the reason
+     */
+    public int convertJunitTestReport(File junitTestReport, Settings settings, TestResultXmlWriter testResultXmlWriter) throws ValidationException {
+        if (junitTestReport == null || !ReportInput.canRead(junitTestReport)) {
+            String filePathInfo = (junitTestReport == null) ? "" : ": " + ReportInput.getPath(junitTestReport);
+            throw new ValidationException("Can not read the JUnit XML file" + filePathInfo);
+        }
+
+        int testResultsCount;
+        try {
+            testResultsCount = writeJunitTestReport(junitTestReport, settings, testResultXmlWriter);
+        } catch (IOException e) {
+            throw new ValidationException("Unable to process JUnit XML file '" + ReportInput.getPath(junitTestReport) + "': " + e.getMessage());
+        } catch (XMLStreamException e) {
+            throw new ValidationException("Unable to process JUnit XML file '" + ReportInput.getPath(junitTestReport) + "', XML stream exception has occurred: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValidationException("Unable to process JUnit XML file '" + ReportInput.getPath(junitTestReport) + "', thread was interrupted: " + e.getMessage());
+        } catch (RuntimeException e) {
+            throw new ValidationException("Unable to process JUnit XML file '" + ReportInput.getPath(junitTestReport) + "', XSD validation was not successful: " + e.getMessage());
+        }
+
+        if (testResultsCount == 0) {
+            throw new ValidationException("No valid test results to push in JUnit XML file '" + ReportInput.getPath(junitTestReport) + "'");
+        }
+        return testResultsCount;
+    }
+
+    /**
+     * Writes test results of the JUnit report one by one as they are parsed. Reports in other formats are
+     * detected by their root element, or by the opening bracket of JSON reports, and parsed by the parser of their format.
+     * Reports packed in an archive are read entry by entry without extracting them.
+     *
+     * @return number of written test results
+     */
+    public int writeJunitTestReport(File junitTestReport, final Settings settings, final TestResultXmlWriter testResultXmlWriter)
+            throws XMLStreamException, IOException, InterruptedException {
+        int maxStackTraceBytes = (settings.getMaxStackTraceBytes() != null) ? settings.getMaxStackTraceBytes() : Integer.MAX_VALUE;
+        int maxMessageBytes = (settings.getMaxMessageBytes() != null) ? settings.getMaxMessageBytes() : Integer.MAX_VALUE;
+        return readTestResults(junitTestReport, settings.getStarted(), maxStackTraceBytes, maxMessageBytes,
+                testResult -> testResultXmlWriter.add(testResult, settings));
+    }
+
+    private int readTestResults(File report, final Long started, final int maxStackTraceBytes, final int maxMessageBytes,
+                                final TestResultHandler handler) throws XMLStreamException, IOException, InterruptedException {
+        ReportArchive.EntryHandler entryHandler = (entryName, entry) -> {
+            try {
+                return readTestResults(ReportFormats.createIterator(entry, started, maxStackTraceBytes, maxMessageBytes), handler);
+            } catch (XMLStreamException e) {
+                throw new XMLStreamException("archive entry '" + entryName + "': " + e.getMessage(), e);
+            } catch (IOException e) {
+                throw new IOException("archive entry '" + entryName + "': " + e.getMessage(), e);
+            }
+        };
+        if (ReportInput.isStream(report)) {
+            // standard input and pipes can be read only once, archive and format are detected on the stream itself
+            InputStream is = new BufferedInputStream(ReportInput.open(report));
+            ReportIterator<TestResult> iterator;
+            try {
+                if (ReportArchive.isArchive(is)) {
+                    return ReportArchive.readReports(is, report.getName(), entryHandler);
+                }
+                iterator = ReportFormats.createIterator(is, started, maxStackTraceBytes, maxMessageBytes);
+            } catch (XMLStreamException | IOException | RuntimeException e) {
+                IOUtils.closeQuietly(is);
+                throw e;
+            }
+            return readTestResults(iterator, handler);
+        } else if (ReportArchive.isArchive(report)) {
+            return ReportArchive.readReports(report, entryHandler);
+        }
+        return readTestResults(ReportFormats.detect(report).createIterator(report, started, maxStackTraceBytes, maxMessageBytes), handler);
+    }
+
+    private static int readTestResults(ReportIterator<TestResult> iterator, TestResultHandler handler)
+            throws XMLStreamException, IOException, InterruptedException {
+        // the report is released also when parsing or handling of a test result fails
+        try (iterator) {
+            int testResultsCount = 0;
+            while (iterator.hasNext()) {
+                handler.handle(iterator.next());
+                testResultsCount++;
+            }
+            return testResultsCount;
+        }
+    }
+
     public void writeTestResults(List<TestResult> testResults, Settings settings, File targetPath) {
         if (targetPath == null || !targetPath.canWrite()) {
             String filePathInfo = (targetPath == null) ? "" : ": " + targetPath.getAbsolutePath();
@@ -99,10 +260,15 @@ public class XmlProcessor {
         } finally {
             try {
                 testResultXmlWriter.close();
-            } catch (XMLStreamException e) {
+            } catch (XMLStreamException | IOException e) {
                 System.out.println("Can not close the XML file'" + targetPath.getAbsolutePath() + "'" + e.getMessage());
                 System.exit(ReturnCode.FAILURE.getReturnCode());
             }
         }
     }
+
+    private interface TestResultHandler {
+
+        void handle(TestResult testResult) throws XMLStreamException, IOException, InterruptedException;
+    }
 }
@@ -0,0 +1,286 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt.authentication;
+
+import org.apache.http.cookie.Cookie;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Authenticated session shared by concurrent requests. The authentication cookie is replaced atomically, so
+ * a request always uses a complete token. Requests which need to sign in at the same time wait for a single
+ * sign in instead of signing in one after another. A session replaced before it expired is signed out as soon as
+ * the last request using it completes.
+ */
+public class AuthSession {
+
+    // session is refreshed before it expires, so that a request in progress is not rejected
+    private static final long REFRESH_MARGIN = 5 * 60 * 1000;
+
+    public interface SignIn {
+        Cookie signIn() throws IOException;
+    }
+
+    public interface SignOut {
+        void signOut(Cookie cookie) throws IOException;
+    }
+
+    private final SignIn signIn;
+    private final SignOut signOut;
+    private final Supplier<Cookie> restoredSession;
+    private final LongSupplier clock;
+    private final AtomicReference<Token> current = new AtomicReference<>();
+    // replaced sessions still used by requests in progress
+    private final Map<Cookie, Token> replacedTokens = new ConcurrentHashMap<>();
+    private final AtomicReference<CompletableFuture<Token>> pendingSignIn = new AtomicReference<>();
+    private volatile boolean isRestoreAttempted = false;
+
+    /**
+     * @param signIn          signs in and returns the authentication cookie
+     * @param restoredSession provides a cookie of a previous run used instead of the first sign in, may return null
+     */
+    public AuthSession(SignIn signIn, Supplier<Cookie> restoredSession) {
+        this(signIn, cookie -> {
+        }, restoredSession, System::currentTimeMillis);
+    }
+
+    /**
+     * @param signIn          signs in and returns the authentication cookie
+     * @param signOut         signs out a session which was replaced before it expired
+     * @param restoredSession provides a cookie of a previous run used instead of the first sign in, may return null
+     * @param clock           current time in milliseconds, compared with the expiry of the cookie
+     */
+    public AuthSession(SignIn signIn, SignOut signOut, Supplier<Cookie> restoredSession, LongSupplier clock) {
+        this.signIn = signIn;
+        this.signOut = signOut;
+        this.restoredSession = restoredSession;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the authentication cookie, signing in first when there is no session yet or when it is about to expire.
+     * The cookie has to be passed to {@link #release(Cookie)} when the request using it completes.
+     */
+    public Cookie getCookie() throws IOException {
+        Token token = current.get();
+        while (true) {
+            if (token == null || token.isRefreshDue(clock.getAsLong())) {
+                token = signIn(token, true);
+            }
+            if (token.acquire()) {
+                return token.cookie;
+            }
+            // replaced and signed out in the meantime
+            token = current.get();
+        }
+    }
+
+    /**
+     * Signs in again after the server rejected the given cookie, unless a concurrent request has already replaced it.
+     * The returned cookie has to be passed to {@link #release(Cookie)} when the request using it completes.
+     */
+    public Cookie refresh(Cookie rejected) throws IOException {
+        Token token = current.get();
+        while (true) {
+            if (token == null || token.cookie == rejected) {
+                token = signIn(token, false);
+            }
+            if (token.acquire()) {
+                return token.cookie;
+            }
+            token = current.get();
+        }
+    }
+
+    /**
+     * Marks the request using the cookie as completed, a replaced session is signed out after its last request.
+     */
+    public void release(Cookie cookie) {
+        Token token = current.get();
+        if (token == null || token.cookie != cookie) {
+            token = replacedTokens.get(cookie);
+        }
+        if (token != null) {
+            token.release();
+        }
+    }
+
+    /**
+     * Signs in, or waits for the sign in which is already in progress.
+     */
+    public Cookie signIn() throws IOException {
+        return signIn(current.get(), false).cookie;
+    }
+
+    public Cookie getCurrentCookie() {
+        Token token = current.get();
+        return (token != null) ? token.cookie : null;
+    }
+
+    /**
+     * Forgets the session after signing out, unless it has been replaced in the meantime.
+     */
+    public void invalidate(Cookie cookie) {
+        Token token = current.get();
+        if (token != null && token.cookie == cookie) {
+            current.compareAndSet(token, null);
+        }
+    }
+
+    /**
+     * @param isRefresh whether the session is replaced before it expired, in which case it is signed out
+     */
+    private Token signIn(Token replaced, boolean isRefresh) throws IOException {
+        // the token the caller has seen is replaced only once, callers which have seen it share one sign in
+        while (true) {
+            CompletableFuture<Token> pending = pendingSignIn.get();
+            if (pending != null) {
+                return await(pending);
+            }
+            Token token = current.get();
+            if (token != null && token != replaced) {
+                // signed in by a concurrent request in the meantime
+                return token;
+            }
+            CompletableFuture<Token> created = new CompletableFuture<>();
+            if (pendingSignIn.compareAndSet(null, created)) {
+                try {
+                    Token signedIn = new Token(isRefresh ? restoreOrSignIn() : signIn.signIn(), clock.getAsLong());
+                    // the replaced token is found by requests completing while it is being replaced
+                    Token previous = current.get();
+                    if (previous != null) {
+                        replacedTokens.put(previous.cookie, previous);
+                    }
+                    // the token is published before the pending sign in is removed, so no request misses both
+                    current.set(signedIn);
+                    created.complete(signedIn);
+                    if (previous != null) {
+                        // a session rejected by the server does not need to be signed out
+                        previous.replace(isRefresh);
+                    }
+                    return signedIn;
+                } catch (IOException | RuntimeException e) {
+                    created.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    pendingSignIn.compareAndSet(created, null);
+                }
+            }
+        }
+    }
+
+    private Cookie restoreOrSignIn() throws IOException {
+        if (!isRestoreAttempted) {
+            isRestoreAttempted = true;
+            Cookie cookie = restoredSession.get();
+            if (cookie != null) {
+                return cookie;
+            }
+        }
+        return signIn.signIn();
+    }
+
+    private static Token await(CompletableFuture<Token> pending) throws IOException {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for sign in");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private final class Token {
+
+        private final Cookie cookie;
+        private final long refreshTime;
+        // requests using the token, plus one while it is the current token
+        private final AtomicInteger users = new AtomicInteger(1);
+        private volatile boolean isSignOutNeeded = false;
+
+        private Token(Cookie cookie, long now) {
+            this.cookie = cookie;
+            long remaining = (cookie != null && cookie.getExpiryDate() != null) ? cookie.getExpiryDate().getTime() - now : 0;
+            // without a known expiry, or with expiry in the past because of clock skew, the session is refreshed
+            // when the server rejects it; short-lived sessions are refreshed in the second half of their lifetime
+            refreshTime = (remaining > 0) ? cookie.getExpiryDate().getTime() - Math.min(REFRESH_MARGIN, remaining / 2) : Long.MAX_VALUE;
+        }
+
+        private boolean isRefreshDue(long now) {
+            return now >= refreshTime;
+        }
+
+        private boolean acquire() {
+            while (true) {
+                int count = users.get();
+                if (count == 0) {
+                    return false;
+                }
+                if (users.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void replace(boolean isSignOutNeeded) {
+            this.isSignOutNeeded = isSignOutNeeded;
+            release();
+        }
+
+        private void release() {
+            if (users.decrementAndGet() == 0) {
+                replacedTokens.remove(cookie);
+                if (isSignOutNeeded) {
+                    try {
+                        signOut.signOut(cookie);
+                    } catch (IOException | RuntimeException e) {
+                        // the session expires on its own
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt.authentication;
+
+import com.microfocus.mqm.clt.Settings;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.cookie.ClientCookie;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Properties;
+
+/**
+ * Keeps the authentication cookie in a file, so that following runs of the tool do not need to sign in again.
+ * Entries are keyed by server and user and encrypted with AES-GCM. The key is derived from the password
+ * and access token, so a cached session can only be used by someone who could sign in anyway.
+ */
+public class SessionCache {
+
+    private static final int SALT_LENGTH = 16;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 128;
+    private static final int KEY_LENGTH = 256;
+    private static final int KEY_ITERATIONS = 20000;
+    // cookie is not reused shortly before it expires
+    private static final long EXPIRY_MARGIN = 60 * 1000;
+
+    private final File cacheFile;
+    private final String entryKey;
+    private final char[] secret;
+    private final SecureRandom random = new SecureRandom();
+
+    public SessionCache(File cacheFile, Settings settings) {
+        this.cacheFile = cacheFile;
+        this.entryKey = DigestUtils.sha256Hex(settings.getServer() + "\n" + (settings.getUser() != null ? settings.getUser() : ""));
+        byte[] password = settings.getPassword() != null ? settings.getPassword() : new byte[0];
+        byte[] secretBytes = AuthenticationUtils.mergeArrays(password, settings.getAccessToken().orElse(new byte[0]));
+        this.secret = new String(Base64.encodeBase64(secretBytes), StandardCharsets.US_ASCII).toCharArray();
+        Arrays.fill(secretBytes, (byte) 0);
+        Arrays.fill(password, (byte) 0);
+    }
+
+    /**
+     * @return cached cookie or null when there is no usable cookie for the server and user
+     */
+    public synchronized Cookie load() {
+        if (secret.length == 0 || !cacheFile.isFile()) {
+            return null;
+        }
+        try {
+            String entry = readEntries().getProperty(entryKey);
+            if (entry == null) {
+                return null;
+            }
+            Cookie cookie = fromJson(new JSONObject(new String(decrypt(Base64.decodeBase64(entry)), StandardCharsets.UTF_8)));
+            return cookie.isExpired(new Date(System.currentTimeMillis() + EXPIRY_MARGIN)) ? null : cookie;
+        } catch (IOException | GeneralSecurityException | JSONException e) {
+            // unreadable cache or changed credentials, sign in again
+            return null;
+        }
+    }
+
+    public synchronized void store(Cookie cookie) {
+        if (secret.length == 0 || cookie == null) {
+            return;
+        }
+        try {
+            Properties entries = cacheFile.isFile() ? readEntries() : new Properties();
+            entries.setProperty(entryKey, Base64.encodeBase64String(encrypt(toJson(cookie).toString().getBytes(StandardCharsets.UTF_8))));
+            writeEntries(entries);
+        } catch (IOException | GeneralSecurityException e) {
+            System.out.println("Unable to store session to the session cache file: " + e.getMessage());
+        }
+    }
+
+    private Properties readEntries() throws IOException {
+        Properties entries = new Properties();
+        try (InputStream inputStream = new FileInputStream(cacheFile)) {
+            entries.load(inputStream);
+        }
+        return entries;
+    }
+
+    private void writeEntries(Properties entries) throws IOException {
+        // concurrent runs of the tool may share the file, it is replaced at once and never left half written
+        File parent = cacheFile.getAbsoluteFile().getParentFile();
+        File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", parent);
+        try {
+            tempFile.setReadable(false, false);
+            tempFile.setReadable(true, true);
+            tempFile.setWritable(false, false);
+            tempFile.setWritable(true, true);
+            try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+                entries.store(outputStream, "ALM Octane Test Result Collection Tool session cache");
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    private byte[] encrypt(byte[] data) throws GeneralSecurityException {
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(salt);
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, deriveKey(salt), new GCMParameterSpec(TAG_LENGTH, iv));
+        cipher.updateAAD(entryKey.getBytes(StandardCharsets.UTF_8));
+        byte[] encrypted = cipher.doFinal(data);
+        return ByteBuffer.allocate(SALT_LENGTH + IV_LENGTH + encrypted.length).put(salt).put(iv).put(encrypted).array();
+    }
+
+    private byte[] decrypt(byte[] data) throws GeneralSecurityException {
+        if (data.length <= SALT_LENGTH + IV_LENGTH) {
+            throw new GeneralSecurityException("Session cache entry is too short");
+        }
+        byte[] salt = Arrays.copyOfRange(data, 0, SALT_LENGTH);
+        byte[] iv = Arrays.copyOfRange(data, SALT_LENGTH, SALT_LENGTH + IV_LENGTH);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, deriveKey(salt), new GCMParameterSpec(TAG_LENGTH, iv));
+        cipher.updateAAD(entryKey.getBytes(StandardCharsets.UTF_8));
+        return cipher.doFinal(data, SALT_LENGTH + IV_LENGTH, data.length - SALT_LENGTH - IV_LENGTH);
+    }
+
+    private SecretKeySpec deriveKey(byte[] salt) throws GeneralSecurityException {
+        PBEKeySpec keySpec = new PBEKeySpec(secret, salt, KEY_ITERATIONS, KEY_LENGTH);
+        try {
+            byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(keySpec).getEncoded();
+            return new SecretKeySpec(key, "AES");
+        } finally {
+            keySpec.clearPassword();
+        }
+    }
+
+    private static JSONObject toJson(Cookie cookie) {
+        JSONObject json = new JSONObject();
+        json.put("name", cookie.getName());
+        json.put("value", cookie.getValue());
+        json.put("domain", cookie.getDomain());
+        json.put("path", cookie.getPath());
+        json.put("secure", cookie.isSecure());
+        if (cookie.getExpiryDate() != null) {
+            json.put("expiry", cookie.getExpiryDate().getTime());
+        }
+        if (cookie instanceof ClientCookie) {
+            // attributes decide how the cookie is matched against request URIs
+            json.put("domainAttribute", ((ClientCookie) cookie).getAttribute(ClientCookie.DOMAIN_ATTR));
+            json.put("pathAttribute", ((ClientCookie) cookie).getAttribute(ClientCookie.PATH_ATTR));
+        }
+        return json;
+    }
+
+    private static Cookie fromJson(JSONObject json) {
+        BasicClientCookie cookie = new BasicClientCookie(json.getString("name"), json.getString("value"));
+        cookie.setDomain(json.optString("domain", null));
+        cookie.setPath(json.optString("path", null));
+        cookie.setSecure(json.optBoolean("secure"));
+        if (json.has("expiry")) {
+            cookie.setExpiryDate(new Date(json.getLong("expiry")));
+        }
+        if (json.has("domainAttribute")) {
+            cookie.setAttribute(ClientCookie.DOMAIN_ATTR, json.getString("domainAttribute"));
+        }
+        if (json.has("pathAttribute")) {
+            cookie.setAttribute(ClientCookie.PATH_ATTR, json.getString("pathAttribute"));
+        }
+        return cookie;
+    }
+}
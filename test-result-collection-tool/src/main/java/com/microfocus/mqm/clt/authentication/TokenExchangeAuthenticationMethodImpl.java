@@ -18,12 +18,14 @@ import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Date;
 
 public class TokenExchangeAuthenticationMethodImpl implements AuthenticationMethod {
 
 
     private final String EXCHANGE_TOKEN_URL = "osp/a/au/auth/oauth2/token";
     private final String ACCESS_TOKEN_COOKIE_KEY = "access_token";
+    private final String EXPIRES_IN_KEY = "expires_in";
 
     private final String TOKEN_EXCHANGE_GRANT_TYPE_KEY = "grant_type";
     private final String TOKEN_EXCHANGE_SUBJECT_TOKEN_TYPE_KEY = "subject_token_type";
@@ -71,6 +73,11 @@ public class TokenExchangeAuthenticationMethodImpl implements AuthenticationMeth
             BasicClientCookie authToken = new BasicClientCookie(ACCESS_TOKEN_COOKIE_KEY, accessToken);
 
             authToken.setDomain(URI.create(request.getRequestLine().getUri()).getHost());
+            long expiresIn = responseJson.optLong(EXPIRES_IN_KEY);
+            if (expiresIn > 0) {
+                // lets the client refresh the token before it expires
+                authToken.setExpiryDate(new Date(System.currentTimeMillis() + expiresIn * 1000));
+            }
             return authToken;
         } catch (IOException e) {
             throw new RuntimeException("Failed to parse access token from response", e);
@@ -38,6 +38,7 @@ public class TestResultPushStatus {
     private String status;
     private Date until;
     private String errorMessage;
+    private Long retryAfter;
 
     public TestResultPushStatus(String status, Date until, String errorMessage) {
         this.until = until;
@@ -45,6 +46,11 @@ public class TestResultPushStatus {
         this.errorMessage = errorMessage;
     }
 
+    public TestResultPushStatus(String status, Date until, String errorMessage, Long retryAfter) {
+        this(status, until, errorMessage);
+        this.retryAfter = retryAfter;
+    }
+
     public String getStatus() {
         return status;
     }
@@ -56,4 +62,11 @@ public class TestResultPushStatus {
     public String getErrorMessage() {
         return errorMessage;
     }
+
+    /**
+     * @return delay in milliseconds before the status should be checked again as requested by the server, or null
+     */
+    public Long getRetryAfter() {
+        return retryAfter;
+    }
 }
@@ -41,10 +41,9 @@ import org.xml.sax.ext.DeclHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import javax.xml.XMLConstants;
-import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
@@ -57,39 +56,55 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
 import java.util.NoSuchElementException;
 
-public abstract class AbstractXmlIterator<E> {
+public abstract class AbstractXmlIterator<E> implements ReportIterator<E> {
 
     private InputStream is;
-    private XMLEventReader reader;
-    private LinkedList<E> queue;
+    private XMLStreamReader reader;
+    private ArrayDeque<E> queue;
     private boolean closed;
 
     public AbstractXmlIterator(File xmlFile) throws XMLStreamException, FileNotFoundException {
-        this.is = new FileInputStream(xmlFile);
-        reader = createXmlInputFactory().createXMLEventReader(is, "UTF-8");
-        queue = new LinkedList<E>();
+        this(new FileInputStream(xmlFile));
     }
 
+    /**
+     * The stream is closed when all items were read.
+     */
+    public AbstractXmlIterator(InputStream is) throws XMLStreamException {
+        this.is = is;
+        reader = createXmlInputFactory().createXMLStreamReader(is, "UTF-8");
+        queue = new ArrayDeque<E>();
+    }
+
+    @Override
     public boolean hasNext() throws XMLStreamException, IOException, InterruptedException {
         while (queue.isEmpty() && !closed) {
             if (reader.hasNext()) {
-                onEvent(reader.nextEvent());
+                onEvent(reader.next(), reader);
             } else {
-                try {
-                    reader.close();
-                } catch (XMLStreamException e) {
-                    // close quietly
-                }
-                IOUtils.closeQuietly(is);
-                closed = true;
+                close();
             }
         }
         return !queue.isEmpty();
     }
 
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // close quietly
+            }
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    @Override
     public E next() throws XMLStreamException, IOException, InterruptedException {
         if (!hasNext()) {
             throw new NoSuchElementException();
@@ -98,16 +113,23 @@ public abstract class AbstractXmlIterator<E> {
         }
     }
 
-    protected abstract void onEvent(XMLEvent event) throws IOException, InterruptedException;
+    /**
+     * Called for every parsing event with the reader positioned at it. The cursor API does not create
+     * any event objects, data of the current event are read directly from the reader.
+     *
+     * @param eventType one of the {@link javax.xml.stream.XMLStreamConstants}
+     */
+    protected abstract void onEvent(int eventType, XMLStreamReader reader) throws IOException, InterruptedException;
 
     protected void addItem(E item) {
         queue.add(item);
     }
 
-    private static XMLInputFactory createXmlInputFactory() {
+    static XMLInputFactory createXmlInputFactory() {
         XMLInputFactory xmlFactory = XMLInputFactory.newInstance();
         xmlFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
         xmlFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        xmlFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
         return xmlFactory;
     }
 }
@@ -0,0 +1,286 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt.xml;
+
+import com.microfocus.mqm.clt.tests.TestResult;
+import com.microfocus.mqm.clt.tests.TestResultStatus;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+/**
+ * Parses Cucumber JSON reports, every scenario is one test result of the class named by its feature, or by the
+ * feature file when the name follows the scenarios. The report is read incrementally, embeddings are skipped
+ * without being copied and only the error message of the first failed step is kept, so memory consumption does
+ * not depend on the size of the report.
+ */
+public class CucumberJsonIterator implements ReportIterator<TestResult> {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final JsonStreamReader reader;
+    private final long started;
+    private final int maxMessageBytes;
+    private final TextBuffer stackTrace;
+    private boolean inDocument;
+    private boolean inFeature;
+    private boolean inElements;
+    private boolean closed;
+    private String featureName;
+    private TestResult testResult;
+
+    // outcome of the steps read since the last scenario, including the steps of its background
+    private TestResultStatus status;
+    private long durationNanos;
+    private String failedStep;
+
+    public CucumberJsonIterator(InputStream report, Long started, int maxStackTraceBytes, int maxMessageBytes) {
+        this.reader = new JsonStreamReader(new InputStreamReader(report, StandardCharsets.UTF_8));
+        this.started = (started == null) ? System.currentTimeMillis() : started;
+        this.maxMessageBytes = maxMessageBytes;
+        this.stackTrace = new TextBuffer(maxStackTraceBytes);
+        resetOutcome();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        while (testResult == null && !closed) {
+            if (!inDocument) {
+                reader.beginArray();
+                inDocument = true;
+            } else if (inElements) {
+                if (reader.hasNext()) {
+                    readElement();
+                } else {
+                    reader.endArray();
+                    inElements = false;
+                }
+            } else if (inFeature) {
+                readFeatureField();
+            } else if (reader.hasNext()) {
+                reader.beginObject();
+                inFeature = true;
+                featureName = null;
+            } else {
+                reader.endArray();
+                reader.peek();
+                close();
+            }
+        }
+        return testResult != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            reader.close();
+        }
+    }
+
+    @Override
+    public TestResult next() throws IOException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        TestResult result = testResult;
+        testResult = null;
+        return result;
+    }
+
+    private void readFeatureField() throws IOException {
+        if (!reader.hasNext()) {
+            reader.endObject();
+            inFeature = false;
+            return;
+        }
+        String field = reader.nextName();
+        if ("name".equals(field)) {
+            featureName = reader.nextString();
+        } else if ("uri".equals(field) && featureName == null) {
+            // names the feature when its name does not precede the scenarios
+            featureName = reader.nextString();
+        } else if ("elements".equals(field)) {
+            reader.beginArray();
+            inElements = true;
+        } else {
+            reader.skipValue();
+        }
+    }
+
+    private void readElement() throws IOException {
+        String name = null;
+        String type = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if ("name".equals(field)) {
+                name = reader.nextString();
+            } else if ("type".equals(field)) {
+                type = reader.nextString();
+            } else if ("steps".equals(field) || "before".equals(field) || "after".equals(field)) {
+                readSteps();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if ("background".equals(type)) {
+            // background steps are reported right before every scenario they run with
+            return;
+        }
+        if (StringUtils.isNotEmpty(name)) {
+            testResult = new TestResult("", TestReportXmlIterator.restrictSizeTo255(StringUtils.defaultString(featureName)),
+                    TestReportXmlIterator.restrictSizeTo255(name), status, durationNanos / NANOS_PER_MILLI, started);
+            if (TestResultStatus.FAILED.equals(status)) {
+                testResult.setFailedInfo(null, TextBuffer.truncate(failedStep, maxMessageBytes), TestReportXmlIterator.getText(stackTrace));
+            }
+        }
+        resetOutcome();
+    }
+
+    private void readSteps() throws IOException {
+        if (reader.peek() != JsonStreamReader.Token.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            readStep();
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Reads a step or a hook. Steps may contain hooks of their own.
+     */
+    private void readStep() throws IOException {
+        String keyword = null;
+        String name = null;
+        boolean failed = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if ("keyword".equals(field)) {
+                keyword = reader.nextString();
+            } else if ("name".equals(field)) {
+                name = reader.nextString();
+            } else if ("result".equals(field)) {
+                failed = readResult();
+            } else if ("before".equals(field) || "after".equals(field)) {
+                readSteps();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (failed) {
+            failedStep = (name != null) ? "Step failed: " + (StringUtils.trimToEmpty(keyword) + " " + name).trim() : "Hook failed";
+        }
+    }
+
+    /**
+     * @return true when this is the first failed step of the scenario
+     */
+    private boolean readResult() throws IOException {
+        String stepStatus = null;
+        boolean errorCollected = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if ("status".equals(field)) {
+                stepStatus = reader.nextString();
+            } else if ("duration".equals(field) && reader.peek() == JsonStreamReader.Token.NUMBER) {
+                durationNanos += reader.nextLong();
+            } else if ("error_message".equals(field) && !TestResultStatus.FAILED.equals(status)) {
+                // the status may follow the message, it is collected until the step turns out not to be the first failure
+                stackTrace.reset();
+                reader.nextString(stackTrace);
+                errorCollected = true;
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        TestResultStatus resultStatus = parseStatus(stepStatus);
+        boolean firstFailure = TestResultStatus.FAILED.equals(resultStatus) && !TestResultStatus.FAILED.equals(status);
+        if (errorCollected && !firstFailure) {
+            stackTrace.reset();
+        }
+        if (TestResultStatus.FAILED.equals(resultStatus) || (TestResultStatus.SKIPPED.equals(resultStatus) && TestResultStatus.PASSED.equals(status))) {
+            status = resultStatus;
+        }
+        return firstFailure;
+    }
+
+    private void resetOutcome() {
+        status = TestResultStatus.PASSED;
+        durationNanos = 0;
+        failedStep = null;
+        stackTrace.reset();
+    }
+
+    private static TestResultStatus parseStatus(String status) {
+        if ("passed".equals(status)) {
+            return TestResultStatus.PASSED;
+        } else if ("skipped".equals(status) || "pending".equals(status) || "undefined".equals(status) || status == null) {
+            return TestResultStatus.SKIPPED;
+        }
+        // failed and ambiguous
+        return TestResultStatus.FAILED;
+    }
+
+    public static class Format implements ReportFormat {
+
+        @Override
+        public String getName() {
+            return "Cucumber JSON";
+        }
+
+        @Override
+        public boolean isReportRoot(String rootElement) {
+            return "[".equals(rootElement);
+        }
+
+        @Override
+        public CucumberJsonIterator createIterator(InputStream report, Long started, int maxStackTraceBytes, int maxMessageBytes) {
+            return new CucumberJsonIterator(report, started, maxStackTraceBytes, maxMessageBytes);
+        }
+    }
+}
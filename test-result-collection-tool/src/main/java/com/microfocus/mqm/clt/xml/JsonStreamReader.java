@@ -0,0 +1,415 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt.xml;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Pull parser reading a JSON document token by token. Only a small window of the document is held in memory,
+ * string values can be streamed into a {@link TextBuffer} or skipped without ever being copied out of the window.
+ */
+final class JsonStreamReader implements Closeable {
+
+    enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, TRUE, FALSE, NULL, END_DOCUMENT
+    }
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private final Reader in;
+    private final char[] buf = new char[8192];
+    private final char[] escaped = new char[1];
+    private final StringBuilder text = new StringBuilder();
+    private int pos;
+    private int limit;
+    private long offset;
+    private int[] stack = new int[32];
+    private int depth;
+    private Token peeked;
+
+    JsonStreamReader(Reader in) {
+        this.in = in;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * @return type of the next token without consuming it
+     */
+    Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        int scope = stack[depth - 1];
+        if (scope == EMPTY_ARRAY || scope == NONEMPTY_ARRAY) {
+            stack[depth - 1] = NONEMPTY_ARRAY;
+            int c = nextNonWhitespace();
+            if (c == ']') {
+                return peeked = Token.END_ARRAY;
+            } else if (scope == EMPTY_ARRAY) {
+                pos--;
+            } else if (c != ',') {
+                throw syntaxError("',' or ']' expected");
+            }
+        } else if (scope == EMPTY_OBJECT || scope == NONEMPTY_OBJECT) {
+            int c = nextNonWhitespace();
+            if (c == '}') {
+                return peeked = Token.END_OBJECT;
+            } else if (scope == NONEMPTY_OBJECT) {
+                if (c != ',') {
+                    throw syntaxError("',' or '}' expected");
+                }
+                c = nextNonWhitespace();
+            }
+            if (c != '"') {
+                throw syntaxError("name expected");
+            }
+            stack[depth - 1] = DANGLING_NAME;
+            return peeked = Token.NAME;
+        } else if (scope == DANGLING_NAME) {
+            if (nextNonWhitespace() != ':') {
+                throw syntaxError("':' expected");
+            }
+            stack[depth - 1] = NONEMPTY_OBJECT;
+        } else if (scope == EMPTY_DOCUMENT) {
+            stack[depth - 1] = NONEMPTY_DOCUMENT;
+        } else {
+            if (skipWhitespace()) {
+                throw syntaxError("end of document expected");
+            }
+            return peeked = Token.END_DOCUMENT;
+        }
+        return peeked = peekValue();
+    }
+
+    boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    String nextName() throws IOException {
+        expect(Token.NAME);
+        text.setLength(0);
+        readString(text, null);
+        return text.toString();
+    }
+
+    /**
+     * @return string or number value, null for a null value
+     */
+    String nextString() throws IOException {
+        Token token = peek();
+        if (token == Token.NULL) {
+            peeked = null;
+            return null;
+        }
+        text.setLength(0);
+        if (token == Token.NUMBER) {
+            peeked = null;
+            readNumber(text);
+        } else {
+            expect(Token.STRING);
+            readString(text, null);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Appends the string value to the buffer, a null value leaves the buffer untouched.
+     */
+    void nextString(TextBuffer buffer) throws IOException {
+        if (peek() == Token.NULL) {
+            peeked = null;
+        } else {
+            expect(Token.STRING);
+            readString(null, buffer);
+        }
+    }
+
+    long nextLong() throws IOException {
+        expect(Token.NUMBER);
+        text.setLength(0);
+        readNumber(text);
+        String number = text.toString();
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            try {
+                return (long) Double.parseDouble(number);
+            } catch (NumberFormatException e2) {
+                throw syntaxError("number expected");
+            }
+        }
+    }
+
+    /**
+     * Skips the next value including everything nested in it.
+     */
+    void skipValue() throws IOException {
+        int nesting = 0;
+        do {
+            Token token = peek();
+            peeked = null;
+            switch (token) {
+                case BEGIN_OBJECT:
+                    push(EMPTY_OBJECT);
+                    nesting++;
+                    break;
+                case BEGIN_ARRAY:
+                    push(EMPTY_ARRAY);
+                    nesting++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    nesting--;
+                    break;
+                case NAME:
+                case STRING:
+                    readString(null, null);
+                    break;
+                case NUMBER:
+                    readNumber(null);
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("value expected");
+                default:
+                    break;
+            }
+        } while (nesting > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Token peekValue() throws IOException {
+        int c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+                readLiteral("rue");
+                return Token.TRUE;
+            case 'f':
+                readLiteral("alse");
+                return Token.FALSE;
+            case 'n':
+                readLiteral("ull");
+                return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--;
+                    return Token.NUMBER;
+                }
+                throw syntaxError("value expected");
+        }
+    }
+
+    private void expect(Token token) throws IOException {
+        if (peek() != token) {
+            throw syntaxError(token + " expected but was " + peeked);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    /**
+     * Reads the rest of a string whose opening quote was consumed, into the builder or the buffer when given.
+     */
+    private void readString(StringBuilder builder, TextBuffer buffer) throws IOException {
+        while (true) {
+            int start = pos;
+            while (pos < limit && buf[pos] != '"' && buf[pos] != '\\') {
+                pos++;
+            }
+            if (pos > start) {
+                if (builder != null) {
+                    builder.append(buf, start, pos - start);
+                } else if (buffer != null) {
+                    buffer.append(buf, start, pos - start);
+                }
+            }
+            if (pos == limit) {
+                if (!fill()) {
+                    throw syntaxError("unterminated string");
+                }
+                continue;
+            }
+            if (buf[pos++] == '"') {
+                return;
+            }
+            escaped[0] = readEscape();
+            if (builder != null) {
+                builder.append(escaped[0]);
+            } else if (buffer != null) {
+                buffer.append(escaped, 0, 1);
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case -1:
+                throw syntaxError("unterminated string");
+            default:
+                // \" \\ \/ and lenient unknown escapes stand for the character itself
+                return (char) c;
+        }
+    }
+
+    private void readNumber(StringBuilder builder) throws IOException {
+        while (pos < limit || fill()) {
+            char c = buf[pos];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                if (builder != null) {
+                    builder.append(c);
+                }
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void readLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw syntaxError("value expected");
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos++];
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        if (!skipWhitespace()) {
+            throw syntaxError("unexpected end of document");
+        }
+        return buf[pos++];
+    }
+
+    /**
+     * @return false at the end of the document
+     */
+    private boolean skipWhitespace() throws IOException {
+        while (pos < limit || fill()) {
+            char c = buf[pos];
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r' && c != '\uFEFF') {
+                return true;
+            }
+            pos++;
+        }
+        return false;
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        pos = 0;
+        limit = 0;
+        int read = in.read(buf, 0, buf.length);
+        if (read > 0) {
+            limit = read;
+        }
+        return limit > 0;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed JSON at character " + (offset + pos) + ": " + message);
+    }
+}
@@ -37,115 +37,99 @@ import com.microfocus.mqm.clt.tests.TestResultStatus;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.*;
+import javax.xml.stream.XMLStreamReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.Iterator;
+import java.io.InputStream;
 
-public class JunitXmlIterator extends AbstractXmlIterator<TestResult> {
+public class JunitXmlIterator extends TestReportXmlIterator {
 
-    private String packageName;
     private String className;
     private String testName;
     private TestResultStatus status;
     private long duration;
-    private long started;
 
-    private String stackTraceStr;
     private String errorType;
     private String errorMsg;
-    private boolean allowStackTraceAggregation;
 
 
     public JunitXmlIterator(File junitXmlFile, Long started) throws XMLStreamException, IOException {
-        super(junitXmlFile);
-        this.started = (started == null) ? System.currentTimeMillis() : started;
+        this(junitXmlFile, started, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Error messages and stack traces longer than the given number of UTF-8 bytes are truncated while parsing.
+     */
+    public JunitXmlIterator(File junitXmlFile, Long started, int maxStackTraceBytes, int maxMessageBytes) throws XMLStreamException, IOException {
+        this(new FileInputStream(junitXmlFile), started, maxStackTraceBytes, maxMessageBytes);
+    }
+
+    public JunitXmlIterator(InputStream junitXml, Long started, int maxStackTraceBytes, int maxMessageBytes) throws XMLStreamException {
+        super(junitXml, started, maxStackTraceBytes, maxMessageBytes);
     }
 
     @Override
-    protected void onEvent(XMLEvent event) throws IOException {
-        Iterator attrIterator;
-        if (event instanceof StartElement) {
-            StartElement element = (StartElement) event;
-            String localName = element.getName().getLocalPart();
-            if ("testcase".equals(localName)) { // NON-NLS
-                packageName = "";
-                className = "";
-                testName = "";
-                status = TestResultStatus.PASSED;
-                duration = 0;
-
-                attrIterator = element.getAttributes();
-                while (attrIterator.hasNext()) {
-                    Attribute attribute = (Attribute) attrIterator.next();
-                    if ("classname".equals(attribute.getName().toString())) {
-                        parseClassname(attribute.getValue());
-                    } else if ("name".equals(attribute.getName().toString())) {
-                        testName = restrictSizeTo255(attribute.getValue());
-                    } else if ("time".equals(attribute.getName().toString())) {
-                        duration = parseDuration(attribute.getValue());
-                    }
-                }
-            } else if ("skipped".equals(localName)) { // NON-NLS
-                status = TestResultStatus.SKIPPED;
-            } else if ("failure".equals(localName) || "error".equals(localName)) { // NON-NLS
-                allowStackTraceAggregation = true;
-                status = TestResultStatus.FAILED;
-                stackTraceStr = "";
-                attrIterator = element.getAttributes();
-                while (attrIterator.hasNext()) {
-                    Attribute attribute = (Attribute) attrIterator.next();
-                    if ("message".equals(attribute.getName().toString())) {
-                        errorMsg = attribute.getValue();
-                    } else if ("type".equals(attribute.getName().toString())) {
-                        errorType = attribute.getValue();
-                    }
+    protected void onStartElement(String localName, XMLStreamReader reader) {
+        if ("testcase".equals(localName)) { // NON-NLS
+            className = "";
+            testName = "";
+            status = TestResultStatus.PASSED;
+            duration = 0;
+
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String attributeName = reader.getAttributeLocalName(i);
+                if ("classname".equals(attributeName)) {
+                    className = reader.getAttributeValue(i);
+                } else if ("name".equals(attributeName)) {
+                    testName = reader.getAttributeValue(i);
+                } else if ("time".equals(attributeName)) {
+                    duration = parseDuration(reader.getAttributeValue(i));
                 }
             }
-        } else if (event instanceof EndElement) {
-            EndElement element = (EndElement) event;
-            String localName = element.getName().getLocalPart();
-            allowStackTraceAggregation = false;
-            if ("testcase".equals(localName) && StringUtils.isNotEmpty(testName)) { // NON-NLS
-                TestResult tr = new TestResult(packageName, className, testName, status, duration, started);
-                if(TestResultStatus.FAILED.equals(status)){
-                    tr.setFailedInfo(errorType, errorMsg, stackTraceStr);
+        } else if ("skipped".equals(localName)) { // NON-NLS
+            status = TestResultStatus.SKIPPED;
+        } else if ("failure".equals(localName) || "error".equals(localName)) { // NON-NLS
+            status = TestResultStatus.FAILED;
+            collectText(stackTrace);
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String attributeName = reader.getAttributeLocalName(i);
+                if ("message".equals(attributeName)) {
+                    errorMsg = truncateMessage(reader.getAttributeValue(i));
+                } else if ("type".equals(attributeName)) {
+                    errorType = reader.getAttributeValue(i);
                 }
-                addItem(tr);
-            }
-        } else if (event instanceof Characters) {
-            if (allowStackTraceAggregation) {
-                stackTraceStr += ((Characters) event).getData();
             }
         }
     }
 
-    private String restrictSizeTo255(String value) {
-        int RESTRICT_SIZE = 255;
-        String result = value;
-        if (value != null && value.length() > RESTRICT_SIZE) {
-            result = value.substring(0, RESTRICT_SIZE);
+    @Override
+    protected void onEndElement(String localName) {
+        if ("testcase".equals(localName) && StringUtils.isNotEmpty(testName)) { // NON-NLS
+            TestResult tr = createTestResult(className, testName, status, duration);
+            if(TestResultStatus.FAILED.equals(status)){
+                tr.setFailedInfo(errorType, errorMsg, stackTrace.getText());
+            }
+            addItem(tr);
         }
-        return result;
     }
 
-    private long parseDuration(String timeString) {
-        try {
-            float seconds = Float.parseFloat(timeString);
-            return (long) (seconds * 1000);
-        } catch (NumberFormatException e) {
-            System.out.println("Unable to parse test duration: " + timeString);
+    public static class Format implements ReportFormat {
+
+        @Override
+        public String getName() {
+            return "JUnit";
+        }
+
+        @Override
+        public boolean isReportRoot(String rootElement) {
+            return "testsuites".equals(rootElement) || "testsuite".equals(rootElement);
         }
-        return 0;
-    }
 
-    private void parseClassname(String fqn) {
-        int p = fqn.lastIndexOf(".");
-        className = fqn.substring(p + 1);
-        if (p > 0) {
-            packageName = fqn.substring(0, p);
-        } else {
-            packageName = "";
+        @Override
+        public AbstractXmlIterator<TestResult> createIterator(InputStream report, Long started, int maxStackTraceBytes, int maxMessageBytes)
+                throws XMLStreamException {
+            return new JunitXmlIterator(report, started, maxStackTraceBytes, maxMessageBytes);
         }
     }
 }
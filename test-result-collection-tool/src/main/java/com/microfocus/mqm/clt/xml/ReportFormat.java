@@ -0,0 +1,78 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt.xml;
+
+import com.microfocus.mqm.clt.tests.TestResult;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Format of test reports converted to test results. Formats are loaded by {@link java.util.ServiceLoader}, further
+ * formats can be added by listing their implementation in META-INF/services/com.microfocus.mqm.clt.xml.ReportFormat.
+ */
+public interface ReportFormat {
+
+    /**
+     * @return name of the format shown to the user
+     */
+    String getName();
+
+    /**
+     * @param rootElement local name of the root element of an XML report, or the opening bracket of a JSON report
+     * @return true when reports with the given root element are in this format
+     */
+    boolean isReportRoot(String rootElement);
+
+    /**
+     * Creates an iterator parsing test results from the report one by one. Error messages and stack traces
+     * longer than the given number of UTF-8 bytes are truncated while parsing. The stream is read only once
+     * and closed when all test results were read.
+     *
+     * @param started start time of the test runs in milliseconds, current time when null
+     */
+    ReportIterator<TestResult> createIterator(InputStream report, Long started, int maxStackTraceBytes, int maxMessageBytes)
+            throws XMLStreamException, IOException;
+
+    /**
+     * Same as {@link #createIterator(InputStream, Long, int, int)} for a report file, which formats may read
+     * more than once.
+     */
+    default ReportIterator<TestResult> createIterator(File report, Long started, int maxStackTraceBytes, int maxMessageBytes)
+            throws XMLStreamException, IOException {
+        return createIterator(new FileInputStream(report), started, maxStackTraceBytes, maxMessageBytes);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt.xml;
+
+import com.microfocus.mqm.clt.tests.TestResult;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Detects the format of a test report from its root element. Reports with an unknown root element are parsed
+ * as JUnit reports, which collect test cases wherever they are in the document.
+ */
+public final class ReportFormats {
+
+    private static final ReportFormat DEFAULT_FORMAT = new JunitXmlIterator.Format();
+    private static final List<ReportFormat> FORMATS = loadFormats();
+    private static final int JSON_ROOT_LOOKAHEAD = 1024;
+    // prolog of XML reports, like comments before the root element, has to fit
+    private static final int ROOT_LOOKAHEAD = 64 * 1024;
+
+    private ReportFormats() {
+    }
+
+    public static List<ReportFormat> getFormats() {
+        return FORMATS;
+    }
+
+    /**
+     * Reads the report only up to its root element. JSON reports are recognized by their opening bracket.
+     */
+    public static ReportFormat detect(File report) throws IOException {
+        InputStream is = new BufferedInputStream(new FileInputStream(report));
+        try {
+            return detect(is);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    /**
+     * Detects the format of the report read from the stream and creates its iterator. The stream is read only once.
+     */
+    public static ReportIterator<TestResult> createIterator(InputStream report, Long started, int maxStackTraceBytes, int maxMessageBytes)
+            throws XMLStreamException, IOException {
+        InputStream is = new BufferedInputStream(report);
+        return detect(is).createIterator(is, started, maxStackTraceBytes, maxMessageBytes);
+    }
+
+    /**
+     * @param is stream supporting mark, reset back to its beginning
+     */
+    private static ReportFormat detect(InputStream is) throws IOException {
+        is.mark(ROOT_LOOKAHEAD);
+        String rootElement = readJsonRoot(is);
+        if (rootElement == null) {
+            is.reset();
+            // the parser must not read beyond the mark, the stream could not be reset otherwise
+            BoundedInputStream prolog = BoundedInputStream.builder().setInputStream(is).setMaxCount(ROOT_LOOKAHEAD)
+                    .setPropagateClose(false).get();
+            try {
+                rootElement = readRootElement(prolog);
+            } catch (XMLStreamException e) {
+                // malformed report is reported by the parser of the default format
+                rootElement = null;
+            }
+            if (rootElement == null && prolog.getCount() >= ROOT_LOOKAHEAD) {
+                System.out.println("Root element of the report was not found in its first " + ROOT_LOOKAHEAD / 1024
+                        + " KB, the report is processed as a JUnit report");
+            }
+        }
+        is.reset();
+        for (ReportFormat format : FORMATS) {
+            if (format.isReportRoot(rootElement)) {
+                return format;
+            }
+        }
+        return DEFAULT_FORMAT;
+    }
+
+    /**
+     * @return opening bracket of a JSON report, null for other reports
+     */
+    private static String readJsonRoot(InputStream is) throws IOException {
+        int c;
+        int read = 0;
+        do {
+            c = is.read();
+            read++;
+        } while (read < JSON_ROOT_LOOKAHEAD && (Character.isWhitespace(c) || isByteOrderMark(c)));
+        return (c == '[' || c == '{') ? String.valueOf((char) c) : null;
+    }
+
+    private static boolean isByteOrderMark(int c) {
+        // UTF-8 encoded U+FEFF
+        return c == 0xEF || c == 0xBB || c == 0xBF;
+    }
+
+    private static String readRootElement(InputStream is) throws XMLStreamException {
+        XMLStreamReader reader = AbstractXmlIterator.createXmlInputFactory().createXMLStreamReader(is, "UTF-8");
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    return reader.getLocalName();
+                }
+            }
+            return null;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static List<ReportFormat> loadFormats() {
+        List<ReportFormat> formats = new ArrayList<ReportFormat>();
+        for (ReportFormat format : ServiceLoader.load(ReportFormat.class, ReportFormat.class.getClassLoader())) {
+            formats.add(format);
+        }
+        return Collections.unmodifiableList(formats);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt.xml;
+
+import com.microfocus.mqm.clt.tests.TestResult;
+import com.microfocus.mqm.clt.tests.TestResultStatus;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+/**
+ * Parses TestNG reports (testng-results.xml). Configuration methods are skipped.
+ */
+public class TestNgXmlIterator extends TestReportXmlIterator {
+
+    private String className;
+    private String testName;
+    private TestResultStatus status;
+    private long duration;
+    private String errorType;
+    private boolean inTestMethod;
+
+    public TestNgXmlIterator(InputStream report, Long started, int maxStackTraceBytes, int maxMessageBytes) throws XMLStreamException {
+        super(report, started, maxStackTraceBytes, maxMessageBytes);
+    }
+
+    @Override
+    protected void onStartElement(String localName, XMLStreamReader reader) {
+        if ("class".equals(localName)) {
+            className = getAttribute(reader, "name");
+        } else if ("test-method".equals(localName)) {
+            inTestMethod = !"true".equals(getAttribute(reader, "is-config"));
+            testName = getAttribute(reader, "name");
+            status = parseStatus(getAttribute(reader, "status"));
+            duration = parseMillis(getAttribute(reader, "duration-ms"));
+            errorType = null;
+            message.reset();
+            stackTrace.reset();
+        } else if (inTestMethod) {
+            if ("exception".equals(localName)) {
+                errorType = getAttribute(reader, "class");
+            } else if ("message".equals(localName)) {
+                collectText(message);
+            } else if ("full-stacktrace".equals(localName)) {
+                collectText(stackTrace);
+            }
+        }
+    }
+
+    @Override
+    protected void onEndElement(String localName) {
+        if ("test-method".equals(localName) && inTestMethod) {
+            inTestMethod = false;
+            if (StringUtils.isNotEmpty(testName)) {
+                TestResult testResult = createTestResult(className, testName, status, duration);
+                if (TestResultStatus.FAILED.equals(status)) {
+                    testResult.setFailedInfo(errorType, getText(message), stackTrace.getText());
+                }
+                addItem(testResult);
+            }
+        }
+    }
+
+    private static TestResultStatus parseStatus(String status) {
+        if ("PASS".equals(status)) {
+            return TestResultStatus.PASSED;
+        } else if ("SKIP".equals(status)) {
+            return TestResultStatus.SKIPPED;
+        }
+        return TestResultStatus.FAILED;
+    }
+
+    private static long parseMillis(String millis) {
+        try {
+            return (millis != null) ? Long.parseLong(millis) : 0;
+        } catch (NumberFormatException e) {
+            System.out.println("Unable to parse test duration: " + millis);
+            return 0;
+        }
+    }
+
+    public static class Format implements ReportFormat {
+
+        @Override
+        public String getName() {
+            return "TestNG";
+        }
+
+        @Override
+        public boolean isReportRoot(String rootElement) {
+            return "testng-results".equals(rootElement);
+        }
+
+        @Override
+        public AbstractXmlIterator<TestResult> createIterator(InputStream report, Long started, int maxStackTraceBytes, int maxMessageBytes)
+                throws XMLStreamException {
+            return new TestNgXmlIterator(report, started, maxStackTraceBytes, maxMessageBytes);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt.xml;
+
+import com.microfocus.mqm.clt.tests.TestResult;
+import com.microfocus.mqm.clt.tests.TestResultStatus;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Base of the test report parsers. Dispatches start and end elements to the subclass, and collects the text
+ * of the elements holding error messages and stack traces into reusable size-limited buffers.
+ */
+public abstract class TestReportXmlIterator extends AbstractXmlIterator<TestResult> {
+
+    private static final int RESTRICT_SIZE = 255;
+
+    protected final long started;
+    final TextBuffer stackTrace;
+    final TextBuffer message;
+    private final int maxMessageBytes;
+    private TextBuffer collectedText;
+
+    protected TestReportXmlIterator(InputStream report, Long started, int maxStackTraceBytes, int maxMessageBytes) throws XMLStreamException {
+        super(report);
+        this.started = (started == null) ? System.currentTimeMillis() : started;
+        this.stackTrace = new TextBuffer(maxStackTraceBytes);
+        this.message = new TextBuffer(maxMessageBytes);
+        this.maxMessageBytes = maxMessageBytes;
+    }
+
+    @Override
+    protected final void onEvent(int eventType, XMLStreamReader reader) throws IOException {
+        if (eventType == XMLStreamConstants.START_ELEMENT) {
+            onStartElement(reader.getLocalName(), reader);
+        } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+            // texts are collected from the elements which contain nothing but the text
+            collectedText = null;
+            onEndElement(reader.getLocalName());
+        } else if (eventType == XMLStreamConstants.CHARACTERS || eventType == XMLStreamConstants.CDATA || eventType == XMLStreamConstants.SPACE) {
+            // text outside of the collected elements is skipped without being copied out of the reader
+            if (collectedText != null) {
+                collectedText.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+        }
+    }
+
+    protected abstract void onStartElement(String localName, XMLStreamReader reader);
+
+    protected abstract void onEndElement(String localName);
+
+    /**
+     * Collects the text of the current element into the given buffer, up to the end of the next element.
+     */
+    void collectText(TextBuffer buffer) {
+        buffer.reset();
+        collectedText = buffer;
+    }
+
+    protected String truncateMessage(String value) {
+        return TextBuffer.truncate(value, maxMessageBytes);
+    }
+
+    protected static String getAttribute(XMLStreamReader reader, String name) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (name.equals(reader.getAttributeLocalName(i))) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param className fully qualified class name, split into the package and class name
+     */
+    protected TestResult createTestResult(String className, String testName, TestResultStatus status, long duration) {
+        String fqn = (className != null) ? className : "";
+        int p = fqn.lastIndexOf(".");
+        return new TestResult(p > 0 ? fqn.substring(0, p) : "", fqn.substring(p + 1), restrictSizeTo255(testName), status, duration, started);
+    }
+
+    protected static String restrictSizeTo255(String value) {
+        String result = value;
+        if (value != null && value.length() > RESTRICT_SIZE) {
+            result = value.substring(0, RESTRICT_SIZE);
+        }
+        return result;
+    }
+
+    /**
+     * @return duration in milliseconds
+     */
+    protected static long parseDuration(String secondsString) {
+        if (secondsString == null) {
+            return 0;
+        }
+        try {
+            float seconds = Float.parseFloat(secondsString);
+            return (long) (seconds * 1000);
+        } catch (NumberFormatException e) {
+            System.out.println("Unable to parse test duration: " + secondsString);
+        }
+        return 0;
+    }
+
+    /**
+     * @return text of the buffer, null when empty
+     */
+    static String getText(TextBuffer buffer) {
+        String text = buffer.getText();
+        return text.isEmpty() ? null : text;
+    }
+}
@@ -39,6 +39,7 @@ import org.apache.commons.io.IOUtils;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -48,58 +49,158 @@ import java.util.List;
 
 public class TestResultXmlWriter {
 
+    /**
+     * Receives the documents of a writer which rolls over to a new test_result document once a chunk is full.
+     */
+    public interface ChunkTarget {
+
+        OutputStream openChunk() throws IOException;
+
+        void chunkCompleted(int testResultsCount) throws IOException;
+    }
+
     private File targetPath;
+    private OutputStream targetStream;
+    private ChunkTarget chunkTarget;
+    private int maxChunkTestResults;
+    private long maxChunkBytes;
     private XMLStreamWriter writer;
     private OutputStream outputStream;
+    private ChunkStream chunkStream;
+    private int chunkTestResults;
+    private boolean isMarked;
+    private int markedTestResults;
+    private boolean isChunkCompletedSinceMark;
 
     public TestResultXmlWriter(File targetPath) {
         this.targetPath = targetPath;
     }
 
+    public TestResultXmlWriter(OutputStream targetStream) {
+        this.targetStream = targetStream;
+    }
+
+    /**
+     * Creates writer which completes the current chunk after the given number of test runs or once the chunk
+     * reaches the given size. The size is checked on the data already flushed by the XML writer, so the chunk
+     * may exceed it by the size of the XML writer buffer.
+     */
+    public TestResultXmlWriter(ChunkTarget chunkTarget, int maxChunkTestResults, long maxChunkBytes) {
+        this.chunkTarget = chunkTarget;
+        this.maxChunkTestResults = maxChunkTestResults;
+        this.maxChunkBytes = maxChunkBytes;
+    }
+
     public void add(List<TestResult> testResults, Settings settings) throws InterruptedException, XMLStreamException, IOException {
         Iterator<TestResult> items = testResults.iterator();
         initialize(settings);
 
         while (items.hasNext()) {
-            TestResult item = items.next();
-            writer.writeStartElement("test_run");
-            writer.writeAttribute("package", item.getPackageName());
-            writer.writeAttribute("class", item.getClassName());
-            writer.writeAttribute("name", item.getTestName());
-            writer.writeAttribute("status", item.getResult().toPrettyName());
-            writer.writeAttribute("duration", String.valueOf(item.getDuration()));
-            writer.writeAttribute("started", String.valueOf(item.getStarted()));
-
-            if (TestResultStatus.FAILED.equals(item.getResult())) {
-                writer.writeStartElement("error");
-                if (item.getErrorType() != null) {
-                    writer.writeAttribute("type", item.getErrorType());
-                }
-                if (item.getErrorMsg() != null) {
-                    writer.writeAttribute("message", item.getErrorMsg().trim());
-                }
-                if (item.getStackTraceStr() != null) {
-                    writer.writeCharacters(item.getStackTraceStr().trim());
-                }
-                writer.writeEndElement();
+            add(items.next(), settings);
+        }
+    }
+
+    public void add(TestResult item, Settings settings) throws XMLStreamException, IOException {
+        initialize(settings);
+
+        writer.writeStartElement("test_run");
+        writer.writeAttribute("package", item.getPackageName());
+        writer.writeAttribute("class", item.getClassName());
+        writer.writeAttribute("name", item.getTestName());
+        writer.writeAttribute("status", item.getResult().toPrettyName());
+        writer.writeAttribute("duration", String.valueOf(item.getDuration()));
+        writer.writeAttribute("started", String.valueOf(item.getStarted()));
+
+        if (TestResultStatus.FAILED.equals(item.getResult())) {
+            writer.writeStartElement("error");
+            if (item.getErrorType() != null) {
+                writer.writeAttribute("type", item.getErrorType());
+            }
+            if (item.getErrorMsg() != null) {
+                writer.writeAttribute("message", item.getErrorMsg().trim());
+            }
+            if (item.getStackTraceStr() != null) {
+                writer.writeCharacters(item.getStackTraceStr().trim());
             }
             writer.writeEndElement();
         }
+        writer.writeEndElement();
+
+        if (chunkTarget != null && (++chunkTestResults >= maxChunkTestResults || chunkStream.getByteCount() >= maxChunkBytes)) {
+            close();
+        }
     }
 
-    public void close() throws XMLStreamException {
+    public void close() throws XMLStreamException, IOException {
         if (outputStream != null) {
             writer.writeEndElement(); // test_runs
             writer.writeEndElement(); // test_result
             writer.writeEndDocument();
             writer.close();
             IOUtils.closeQuietly(outputStream);
+            outputStream = null;
+            if (chunkTarget != null) {
+                int testResultsCount = chunkTestResults;
+                chunkTestResults = 0;
+                isChunkCompletedSinceMark = true;
+                chunkTarget.chunkCompleted(testResultsCount);
+            }
+        }
+    }
+
+    /**
+     * Marks the position between test runs to which {@link #rollback()} returns. Once marked, the chunk data written
+     * after the last mark is held in memory, so it is limited by the chunk size.
+     */
+    public void mark() throws XMLStreamException, IOException {
+        isMarked = true;
+        isChunkCompletedSinceMark = false;
+        markedTestResults = chunkTestResults;
+        if (chunkStream != null && outputStream != null) {
+            writer.flush();
+            chunkStream.commit();
+        }
+    }
+
+    /**
+     * Removes the test runs written after the last mark from the current chunk. Test runs in chunks completed
+     * since the mark were already passed to the chunk target and are not removed.
+     *
+     * @return true when all test runs written after the mark were removed
+     */
+    public boolean rollback() throws XMLStreamException {
+        if (chunkStream != null && outputStream != null) {
+            writer.flush();
+            chunkStream.rollback();
+            chunkTestResults = markedTestResults;
+        }
+        return !isChunkCompletedSinceMark;
+    }
+
+    /**
+     * Closes the target without completing the document, an incomplete chunk is not passed to the chunk target.
+     */
+    public void discard() {
+        if (outputStream != null) {
+            if (chunkStream != null) {
+                chunkStream.rollback();
+            }
+            IOUtils.closeQuietly(outputStream);
+            outputStream = null;
+            chunkTestResults = 0;
         }
     }
 
     private void initialize(Settings settings) throws IOException, XMLStreamException {
         if (outputStream == null) {
-            outputStream = new FileOutputStream(targetPath);
+            if (targetPath != null) {
+                outputStream = new FileOutputStream(targetPath);
+            } else if (chunkTarget != null) {
+                chunkStream = new ChunkStream(chunkTarget.openChunk());
+                outputStream = chunkStream;
+            } else {
+                outputStream = targetStream;
+            }
             writer = possiblyCreateIndentingWriter(XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, "UTF-8"));
             writer.writeStartDocument();
 
@@ -107,6 +208,13 @@ public class TestResultXmlWriter {
             writeBuildContext(settings);
             writeFields(settings);
             writer.writeStartElement("test_runs");
+            if (isMarked && chunkStream != null) {
+                // test runs written to a new chunk since the mark are removed back to the start of test_runs
+                writer.writeCharacters("");
+                writer.flush();
+                chunkStream.commit();
+                markedTestResults = 0;
+            }
         }
     }
 
@@ -205,4 +313,69 @@ public class TestResultXmlWriter {
             return writer;
         }
     }
+
+    /**
+     * Counts the bytes of the chunk. After the first commit, the bytes are held back until the next commit, so that
+     * they can be removed.
+     */
+    private static final class ChunkStream extends OutputStream {
+
+        private final OutputStream target;
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private boolean isHeldBack;
+        private long committedBytes;
+
+        private ChunkStream(OutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (isHeldBack) {
+                pending.write(b);
+            } else {
+                target.write(b);
+                committedBytes++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (isHeldBack) {
+                pending.write(b, off, len);
+            } else {
+                target.write(b, off, len);
+                committedBytes += len;
+            }
+        }
+
+        private void commit() throws IOException {
+            pending.writeTo(target);
+            committedBytes += pending.size();
+            pending.reset();
+            isHeldBack = true;
+        }
+
+        private void rollback() {
+            pending.reset();
+        }
+
+        private long getByteCount() {
+            return committedBytes + pending.size();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                commit();
+            } finally {
+                target.close();
+            }
+        }
+    }
 }
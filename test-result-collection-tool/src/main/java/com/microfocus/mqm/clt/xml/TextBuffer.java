@@ -0,0 +1,168 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt.xml;
+
+/**
+ * Collects text which the parser reports in many separate events. One buffer is reused for all texts
+ * of a report. The size is limited in UTF-8 bytes, characters beyond the limit are only counted and never
+ * copied, and the returned text ends with a marker saying how much was cut. Leading whitespace is skipped
+ * and trailing whitespace is not counted, so neither takes up the limit or adds to the cut size.
+ */
+final class TextBuffer {
+
+    private final StringBuilder buffer = new StringBuilder();
+    private final int maxBytes;
+    private long capturedBytes;
+    private long truncatedBytes;
+    // whitespace following the last truncated character, counted only when more text follows
+    private long truncatedWhitespaceBytes;
+    private boolean isLeadingWhitespace = true;
+
+    TextBuffer(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    void reset() {
+        buffer.setLength(0);
+        capturedBytes = 0;
+        truncatedBytes = 0;
+        truncatedWhitespaceBytes = 0;
+        isLeadingWhitespace = true;
+    }
+
+    void append(char[] text, int start, int length) {
+        int end = start + length;
+        int i = start;
+        if (isLeadingWhitespace) {
+            // leading whitespace may come in several events, it is skipped until the first other character
+            while (i < end && text[i] <= ' ') {
+                i++;
+            }
+            if (i == end) {
+                return;
+            }
+            isLeadingWhitespace = false;
+        }
+        if (truncatedBytes == 0 && truncatedWhitespaceBytes == 0) {
+            int captureStart = i;
+            while (i < end && capturedBytes + utf8Length(text[i]) <= maxBytes) {
+                capturedBytes += utf8Length(text[i]);
+                i++;
+            }
+            buffer.append(text, captureStart, i - captureStart);
+            if (i < end && buffer.length() > 0 && Character.isHighSurrogate(buffer.charAt(buffer.length() - 1))) {
+                // do not leave half of a surrogate pair at the end
+                buffer.setLength(buffer.length() - 1);
+                capturedBytes -= 2;
+                truncatedBytes += 2;
+            }
+        }
+        for (; i < end; i++) {
+            if (text[i] <= ' ') {
+                truncatedWhitespaceBytes += utf8Length(text[i]);
+            } else {
+                truncatedBytes += truncatedWhitespaceBytes + utf8Length(text[i]);
+                truncatedWhitespaceBytes = 0;
+            }
+        }
+    }
+
+    /**
+     * @return trimmed text followed by the truncation marker when the text exceeded the limit
+     */
+    String getText() {
+        int begin = 0;
+        int end = buffer.length();
+        while (begin < end && buffer.charAt(begin) <= ' ') {
+            begin++;
+        }
+        while (end > begin && buffer.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        String text = buffer.substring(begin, end);
+        if (truncatedBytes == 0) {
+            return text;
+        }
+        // whitespace trimmed from the end of the captured text is a part of the cut text
+        long cutBytes = truncatedBytes;
+        for (int i = end; i < buffer.length(); i++) {
+            cutBytes += utf8Length(buffer.charAt(i));
+        }
+        return text + truncationMarker(cutBytes);
+    }
+
+    /**
+     * @return trimmed value limited to the given number of UTF-8 bytes
+     */
+    static String truncate(String value, int maxBytes) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.trim();
+        if ((long) text.length() * 3 <= maxBytes) {
+            return text;
+        }
+        long bytes = 0;
+        int i = 0;
+        while (i < text.length() && bytes + utf8Length(text.charAt(i)) <= maxBytes) {
+            bytes += utf8Length(text.charAt(i));
+            i++;
+        }
+        if (i == text.length()) {
+            return text;
+        }
+        if (i > 0 && Character.isHighSurrogate(text.charAt(i - 1))) {
+            i--;
+        }
+        long truncatedBytes = 0;
+        for (int j = i; j < text.length(); j++) {
+            truncatedBytes += utf8Length(text.charAt(j));
+        }
+        return text.substring(0, i) + truncationMarker(truncatedBytes);
+    }
+
+    private static String truncationMarker(long truncatedBytes) {
+        return "... [" + truncatedBytes + " bytes truncated]";
+    }
+
+    private static int utf8Length(char c) {
+        if (c < 0x80) {
+            return 1;
+        } else if (c < 0x800 || Character.isSurrogate(c)) {
+            // a surrogate pair takes four bytes together
+            return 2;
+        } else {
+            return 3;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt.xml;
+
+import com.microfocus.mqm.clt.tests.TestResult;
+import com.microfocus.mqm.clt.tests.TestResultStatus;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parses MSTest / VSTest reports (TRX). Class names are in test definitions, which usually follow the results,
+ * so the definitions are read in a first pass over the report and only class names are kept in memory.
+ * Results of data-driven tests are reported for every data row, without the aggregated parent result.
+ */
+public class TrxXmlIterator extends TestReportXmlIterator {
+
+    private final Map<String, String> classNames;
+    // for every open result whether it contains inner results
+    private final ArrayDeque<Boolean> openResults = new ArrayDeque<Boolean>();
+    private String testId;
+    private String testName;
+    private TestResultStatus status;
+    private long duration;
+    private String errorType;
+    // temporary copy of a report read from a stream
+    private File spooledReport;
+
+    public TrxXmlIterator(File report, Long started, int maxStackTraceBytes, int maxMessageBytes) throws XMLStreamException, IOException {
+        super(new FileInputStream(report), started, maxStackTraceBytes, maxMessageBytes);
+        try {
+            classNames = readClassNames(report);
+        } catch (XMLStreamException | IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        if (spooledReport != null) {
+            spooledReport.delete();
+            spooledReport = null;
+        }
+    }
+
+    @Override
+    protected void onStartElement(String localName, XMLStreamReader reader) {
+        if ("UnitTestResult".equals(localName)) {
+            if (!openResults.isEmpty()) {
+                openResults.removeLast();
+                openResults.addLast(true);
+            }
+            openResults.addLast(false);
+            testId = getAttribute(reader, "testId");
+            testName = getAttribute(reader, "testName");
+            String outcome = getAttribute(reader, "outcome");
+            status = parseStatus(outcome);
+            duration = parseTimeSpan(getAttribute(reader, "duration"));
+            // outcome tells timeouts and errors from assertion failures
+            errorType = "Failed".equals(outcome) ? null : outcome;
+            message.reset();
+            stackTrace.reset();
+        } else if (!openResults.isEmpty()) {
+            if ("Message".equals(localName)) {
+                collectText(message);
+            } else if ("StackTrace".equals(localName)) {
+                collectText(stackTrace);
+            }
+        }
+    }
+
+    @Override
+    protected void onEndElement(String localName) {
+        if ("UnitTestResult".equals(localName) && !openResults.isEmpty() && !openResults.removeLast() && StringUtils.isNotEmpty(testName)) {
+            TestResult testResult = createTestResult(classNames.get(testId), testName, status, duration);
+            if (TestResultStatus.FAILED.equals(status)) {
+                testResult.setFailedInfo(errorType, getText(message), stackTrace.getText());
+            }
+            addItem(testResult);
+        }
+    }
+
+    private static Map<String, String> readClassNames(File report) throws XMLStreamException, IOException {
+        Map<String, String> classNames = new HashMap<String, String>();
+        InputStream is = new FileInputStream(report);
+        XMLStreamReader reader = null;
+        try {
+            reader = createXmlInputFactory().createXMLStreamReader(is, "UTF-8");
+            String unitTestId = null;
+            while (reader.hasNext()) {
+                int eventType = reader.next();
+                if (eventType == XMLStreamConstants.START_ELEMENT) {
+                    if ("UnitTest".equals(reader.getLocalName())) {
+                        unitTestId = getAttribute(reader, "id");
+                    } else if ("TestMethod".equals(reader.getLocalName()) && unitTestId != null) {
+                        classNames.put(unitTestId, parseClassName(getAttribute(reader, "className")));
+                    }
+                } else if (eventType == XMLStreamConstants.END_ELEMENT && "TestDefinitions".equals(reader.getLocalName())) {
+                    break;
+                }
+            }
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+            IOUtils.closeQuietly(is);
+        }
+        return classNames;
+    }
+
+    /**
+     * Class name can be an assembly qualified name, like "Tests.MyTest, Tests, Version=1.0.0.0".
+     */
+    private static String parseClassName(String className) {
+        if (className == null) {
+            return null;
+        }
+        int comma = className.indexOf(',');
+        return (comma > 0) ? className.substring(0, comma).trim() : className;
+    }
+
+    private static TestResultStatus parseStatus(String outcome) {
+        if ("Passed".equals(outcome) || "PassedButRunAborted".equals(outcome) || "Warning".equals(outcome) || "Completed".equals(outcome)) {
+            return TestResultStatus.PASSED;
+        } else if ("NotExecuted".equals(outcome) || "Inconclusive".equals(outcome) || "NotRunnable".equals(outcome) || "Pending".equals(outcome)) {
+            return TestResultStatus.SKIPPED;
+        }
+        return TestResultStatus.FAILED;
+    }
+
+    /**
+     * @param timeSpan duration in the hh:mm:ss.fffffff format
+     * @return duration in milliseconds
+     */
+    private static long parseTimeSpan(String timeSpan) {
+        if (timeSpan == null) {
+            return 0;
+        }
+        String[] parts = timeSpan.split(":");
+        try {
+            if (parts.length == 3) {
+                return Long.parseLong(parts[0]) * 3600000 + Long.parseLong(parts[1]) * 60000 + (long) (Double.parseDouble(parts[2]) * 1000);
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.out.println("Unable to parse test duration: " + timeSpan);
+        return 0;
+    }
+
+    public static class Format implements ReportFormat {
+
+        @Override
+        public String getName() {
+            return "TRX";
+        }
+
+        @Override
+        public boolean isReportRoot(String rootElement) {
+            return "TestRun".equals(rootElement);
+        }
+
+        @Override
+        public AbstractXmlIterator<TestResult> createIterator(File report, Long started, int maxStackTraceBytes, int maxMessageBytes)
+                throws XMLStreamException, IOException {
+            return new TrxXmlIterator(report, started, maxStackTraceBytes, maxMessageBytes);
+        }
+
+        /**
+         * Reading the report twice needs a file, the stream is copied to a temporary file deleted after parsing.
+         */
+        @Override
+        public AbstractXmlIterator<TestResult> createIterator(InputStream report, Long started, int maxStackTraceBytes, int maxMessageBytes)
+                throws XMLStreamException, IOException {
+            File spooledReport = File.createTempFile("testResult", ".trx");
+            spooledReport.deleteOnExit();
+            try {
+                OutputStream os = new FileOutputStream(spooledReport);
+                try {
+                    IOUtils.copy(report, os);
+                } finally {
+                    os.close();
+                }
+            } finally {
+                IOUtils.closeQuietly(report);
+            }
+            TrxXmlIterator iterator;
+            try {
+                iterator = new TrxXmlIterator(spooledReport, started, maxStackTraceBytes, maxMessageBytes);
+            } catch (XMLStreamException | IOException | RuntimeException e) {
+                spooledReport.delete();
+                throw e;
+            }
+            iterator.spooledReport = spooledReport;
+            return iterator;
+        }
+    }
+}
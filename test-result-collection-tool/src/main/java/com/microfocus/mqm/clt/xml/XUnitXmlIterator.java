@@ -0,0 +1,136 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt.xml;
+
+import com.microfocus.mqm.clt.tests.TestResult;
+import com.microfocus.mqm.clt.tests.TestResultStatus;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+/**
+ * Parses xUnit.net reports in the v2 format, and in the v1 format which has the same test elements.
+ */
+public class XUnitXmlIterator extends TestReportXmlIterator {
+
+    private String className;
+    private String testName;
+    private TestResultStatus status;
+    private long duration;
+    private String errorType;
+    private boolean inTest;
+    private boolean inFailure;
+
+    public XUnitXmlIterator(InputStream report, Long started, int maxStackTraceBytes, int maxMessageBytes) throws XMLStreamException {
+        super(report, started, maxStackTraceBytes, maxMessageBytes);
+    }
+
+    @Override
+    protected void onStartElement(String localName, XMLStreamReader reader) {
+        if ("test".equals(localName)) {
+            inTest = true;
+            className = getAttribute(reader, "type");
+            testName = getTestName(getAttribute(reader, "name"), className);
+            status = parseStatus(getAttribute(reader, "result"));
+            duration = parseDuration(getAttribute(reader, "time"));
+            errorType = null;
+            message.reset();
+            stackTrace.reset();
+        } else if (inTest) {
+            if ("failure".equals(localName)) {
+                inFailure = true;
+                errorType = getAttribute(reader, "exception-type");
+            } else if ("message".equals(localName) && inFailure) {
+                collectText(message);
+            } else if ("stack-trace".equals(localName) && inFailure) {
+                collectText(stackTrace);
+            }
+        }
+    }
+
+    @Override
+    protected void onEndElement(String localName) {
+        if ("failure".equals(localName)) {
+            inFailure = false;
+        } else if ("test".equals(localName) && inTest) {
+            inTest = false;
+            if (StringUtils.isNotEmpty(testName)) {
+                TestResult testResult = createTestResult(className, testName, status, duration);
+                if (TestResultStatus.FAILED.equals(status)) {
+                    testResult.setFailedInfo(errorType, getText(message), stackTrace.getText());
+                }
+                addItem(testResult);
+            }
+        }
+    }
+
+    /**
+     * Display name of the test starts with the class name by default, including the arguments of theories.
+     */
+    private static String getTestName(String displayName, String className) {
+        if (displayName != null && className != null && displayName.startsWith(className + ".")) {
+            return displayName.substring(className.length() + 1);
+        }
+        return displayName;
+    }
+
+    private static TestResultStatus parseStatus(String result) {
+        if ("Pass".equals(result)) {
+            return TestResultStatus.PASSED;
+        } else if ("Fail".equals(result)) {
+            return TestResultStatus.FAILED;
+        }
+        return TestResultStatus.SKIPPED;
+    }
+
+    public static class Format implements ReportFormat {
+
+        @Override
+        public String getName() {
+            return "xUnit.net";
+        }
+
+        @Override
+        public boolean isReportRoot(String rootElement) {
+            return "assemblies".equals(rootElement) || "assembly".equals(rootElement);
+        }
+
+        @Override
+        public AbstractXmlIterator<TestResult> createIterator(InputStream report, Long started, int maxStackTraceBytes, int maxMessageBytes)
+                throws XMLStreamException {
+            return new XUnitXmlIterator(report, started, maxStackTraceBytes, maxMessageBytes);
+        }
+    }
+}
@@ -133,6 +133,10 @@ public class CliParserTest {
         cmdArgs = parser.parse(options, new String[]{"-i", "-b", "1002", "publicApi.xml"});
         result = (Boolean) argsValidation.invoke(cliParser, cmdArgs);
         Assert.assertFalse(result);
+
+        cmdArgs = parser.parse(options, new String[]{"--batch", "--conversion-threads", "2", "publicApi.xml"});
+        result = (Boolean) argsValidation.invoke(cliParser, cmdArgs);
+        Assert.assertFalse(result);
     }
 
     @Test
@@ -188,6 +192,20 @@ public class CliParserTest {
         Assert.assertEquals(2, fileNames.size());
         Assert.assertTrue(fileNames.get(0).contains("JUnit-minimalAccepted.xml"));
         Assert.assertTrue(fileNames.get(1).contains("JUnit-missingTestName.xml"));
+
+        // standard input is accepted only once
+        cmdArgs = parser.parse(options, new String[]{"-", getClass().getResource("JUnit-minimalAccepted.xml").toURI().getPath(), "-"});
+        result = (Boolean) inputFilesValidation.invoke(cliParser, cmdArgs, settings);
+        Assert.assertTrue(result);
+        Assert.assertEquals(2, settings.getInputXmlFileNames().size());
+        Assert.assertEquals("-", settings.getInputXmlFileNames().get(0));
+
+        // directories and glob patterns are expanded later
+        String resourcesDir = new File(getClass().getResource("JUnit-minimalAccepted.xml").toURI()).getParent();
+        cmdArgs = parser.parse(options, new String[]{resourcesDir, resourcesDir + File.separator + "**" + File.separator + "JUnit-*.xml", "{"});
+        result = (Boolean) inputFilesValidation.invoke(cliParser, cmdArgs, settings);
+        Assert.assertTrue(result);
+        Assert.assertEquals(2, settings.getInputXmlFileNames().size());
     }
 
     @Test
@@ -0,0 +1,101 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.impl.NoConnectionReuseStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.http.util.EntityUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+public class CountingSSLSocketFactoryTest {
+
+    private static final char[] KEYSTORE_PASSWORD = "changeit".toCharArray();
+
+    @Test
+    public void testCountingSSLSocketFactory_resumesSessions_tls13() throws Exception {
+        assertResumedSessions("TLSv1.3");
+    }
+
+    @Test
+    public void testCountingSSLSocketFactory_resumesSessions_tls12() throws Exception {
+        assertResumedSessions("TLSv1.2");
+    }
+
+    private void assertResumedSessions(String protocol) throws Exception {
+        SSLContext serverContext = SSLContexts.custom()
+                .loadKeyMaterial(getClass().getResource("testServer.p12"), KEYSTORE_PASSWORD, KEYSTORE_PASSWORD)
+                .build();
+        HttpsServer server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(serverContext));
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, 2);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write("OK".getBytes());
+            }
+        });
+        server.start();
+        SSLContext clientContext = SSLContexts.custom()
+                .setProtocol(protocol)
+                .loadTrustMaterial(getClass().getResource("testServer.p12"), KEYSTORE_PASSWORD)
+                .build();
+        CountingSSLSocketFactory sslSocketFactory = new CountingSSLSocketFactory(clientContext, NoopHostnameVerifier.INSTANCE);
+        // every request opens a new connection, so that every request makes a handshake
+        try (CloseableHttpClient httpClient = HttpClients.custom()
+                .setSSLSocketFactory(sslSocketFactory)
+                .setConnectionReuseStrategy(NoConnectionReuseStrategy.INSTANCE)
+                .build()) {
+            for (int i = 0; i < 4; i++) {
+                try (CloseableHttpResponse response = httpClient.execute(new HttpGet("https://127.0.0.1:" + server.getAddress().getPort() + "/"))) {
+                    Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+                    EntityUtils.consume(response.getEntity());
+                }
+            }
+        } finally {
+            server.stop(0);
+        }
+        Assert.assertEquals(4, sslSocketFactory.getHandshakes());
+        Assert.assertEquals(3, sslSocketFactory.getResumed());
+    }
+}
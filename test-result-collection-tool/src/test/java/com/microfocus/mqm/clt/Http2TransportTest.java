@@ -0,0 +1,119 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import com.microfocus.mqm.clt.authentication.TokenExchangeAuthenticationMethodImpl;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.HttpClientUtils;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+public class Http2TransportTest {
+
+    @Test
+    public void testHttp2Transport_translatesRequestAndResponse() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            // echoes the received cookie, content type and body
+            String body = exchange.getRequestHeaders().getFirst("Cookie") + "|" + exchange.getRequestHeaders().getFirst("Content-Type") + "|" +
+                    IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+            byte[] response = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Set-Cookie", "LWSSO_COOKIE_KEY=next; Path=/");
+            exchange.sendResponseHeaders(HttpStatus.SC_ACCEPTED, response.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(response);
+            }
+        });
+        server.start();
+        CookieStore cookieStore = new BasicCookieStore();
+        Http2Transport transport = new Http2Transport(null, null);
+        CloseableHttpResponse response = null;
+        try {
+            HttpPost request = new HttpPost("http://127.0.0.1:" + server.getAddress().getPort() + "/api/test-results");
+            request.setEntity(new StringEntity("<test_result/>", ContentType.APPLICATION_XML));
+            response = transport.execute(request, cookieStore);
+            Assert.assertEquals(HttpStatus.SC_ACCEPTED, response.getStatusLine().getStatusCode());
+            Assert.assertEquals("null|application/xml; charset=ISO-8859-1|<test_result/>", IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8));
+            Assert.assertEquals(1, cookieStore.getCookies().size());
+            HttpClientUtils.closeQuietly(response);
+
+            response = transport.execute(request, cookieStore);
+            Assert.assertTrue(IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8).startsWith("LWSSO_COOKIE_KEY=next|"));
+            Assert.assertEquals(2, transport.getHttp11Responses());
+        } finally {
+            HttpClientUtils.closeQuietly(response);
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testHttp2Transport_singleContentType() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            // echoes all received content types
+            byte[] response = String.join(",", exchange.getRequestHeaders().get("Content-Type")).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(HttpStatus.SC_OK, response.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(response);
+            }
+        });
+        server.start();
+        Settings settings = new Settings();
+        settings.setServer("http://127.0.0.1:" + server.getAddress().getPort());
+        settings.setAccessToken("token".getBytes(StandardCharsets.UTF_8));
+        Http2Transport transport = new Http2Transport(null, null);
+        CloseableHttpResponse response = null;
+        try {
+            // the login request sets the content type explicitly and by its entity
+            HttpPost request = new TokenExchangeAuthenticationMethodImpl().getLoginRequest(settings);
+            response = transport.execute(request, new BasicCookieStore());
+            Assert.assertEquals("application/x-www-form-urlencoded", IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8));
+        } finally {
+            HttpClientUtils.closeQuietly(response);
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class InputDiscoveryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testInputDiscovery_directories() throws IOException, InterruptedException {
+        File root = temporaryFolder.getRoot();
+        File explicitFile = createFile(root, "explicit.txt");
+        createFile(root, "TEST-root.xml");
+        createFile(root, "module-a/target/surefire-reports/TEST-a.xml");
+        createFile(root, "module-a/target/surefire-reports/TEST-a.txt");
+        createFile(root, "module-b/target/results.trx");
+        createFile(root, "module-b/node_modules/lib/TEST-lib.xml");
+
+        Settings settings = new Settings();
+        settings.setInputXmlFileNames(Arrays.asList(explicitFile.getPath(), root.getPath()));
+        settings.setExcludes(Collections.singletonList("**/node_modules"));
+        InputDiscovery discovery = new InputDiscovery(settings).start();
+        // explicit files are returned first and as they are, regardless of the include patterns
+        Assert.assertEquals(explicitFile.getPath(), discovery.next());
+        Assert.assertEquals(new HashSet<String>(Arrays.asList(
+                new File(root, "TEST-root.xml").getPath(),
+                new File(root, "module-a/target/surefire-reports/TEST-a.xml").getPath(),
+                new File(root, "module-b/target/results.trx").getPath())), readAll(discovery));
+        Assert.assertFalse(discovery.isFailed());
+
+        // glob pattern with a directory matched also by another input
+        settings.setInputXmlFileNames(Arrays.asList(root.getPath() + "/**/TEST-*.xml", root.getPath() + "/module-a"));
+        settings.setExcludes(null);
+        Assert.assertEquals(new HashSet<String>(Arrays.asList(
+                new File(root, "TEST-root.xml").getPath(),
+                new File(root, "module-a/target/surefire-reports/TEST-a.xml").getPath(),
+                new File(root, "module-b/node_modules/lib/TEST-lib.xml").getPath())), readAll(new InputDiscovery(settings).start()));
+
+        settings.setInputXmlFileNames(Collections.singletonList(root.getPath()));
+        settings.setIncludes(Collections.singletonList("module-a/**/*.txt"));
+        Assert.assertEquals(Collections.singleton(new File(root, "module-a/target/surefire-reports/TEST-a.txt").getPath()),
+                readAll(new InputDiscovery(settings).start()));
+
+        // inputs following a failed one are still discovered
+        settings.setInputXmlFileNames(Arrays.asList(root.getPath() + "/missing/**/*.xml", explicitFile.getPath()));
+        InputDiscovery failedDiscovery = new InputDiscovery(settings).start();
+        Assert.assertEquals(Collections.singleton(explicitFile.getPath()), readAll(failedDiscovery));
+        Assert.assertTrue(failedDiscovery.isFailed());
+
+        Assert.assertTrue(InputDiscovery.isGlob("target/*/TEST-*.xml"));
+        Assert.assertFalse(InputDiscovery.isGlob(explicitFile.getPath()));
+        Assert.assertFalse(InputDiscovery.isValidPattern("target/{a,{b}}.xml"));
+    }
+
+    private static Set<String> readAll(InputDiscovery discovery) throws InterruptedException {
+        Set<String> fileNames = new HashSet<String>();
+        String fileName;
+        while ((fileName = discovery.next()) != null) {
+            Assert.assertTrue("Duplicate file " + fileName, fileNames.add(fileName));
+        }
+        Assert.assertNull(discovery.next());
+        return fileNames;
+    }
+
+    private static File createFile(File root, String path) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        Assert.assertTrue(file.createNewFile());
+        return file;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import com.microfocus.mqm.clt.tests.TestResultPushStatus;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PublishStatusPollerTest {
+
+    @Test
+    public void testPublishStatusPoller() throws InterruptedException, ExecutionException {
+        final Map<Long, AtomicInteger> checks = new ConcurrentHashMap<Long, AtomicInteger>();
+        Settings settings = new Settings();
+        settings.setServer("http://localhost:8080");
+        RestClient client = new RestClient(settings) {
+            @Override
+            public TestResultPushStatus getTestResultStatus(long id) {
+                checks.putIfAbsent(id, new AtomicInteger());
+                // the first check of test result 3 fails
+                if (id == 3) {
+                    if (checks.get(id).incrementAndGet() == 1) {
+                        throw new RuntimeException("Result status retrieval failed");
+                    }
+                    return new TestResultPushStatus("success", null, null);
+                }
+                // test result 1 is processed after the third check, test result 2 is never processed
+                String status = (id == 1 && checks.get(id).incrementAndGet() >= 3) ? "success" : "running";
+                if (id == 2) {
+                    checks.get(id).incrementAndGet();
+                }
+                return new TestResultPushStatus(status, null, null);
+            }
+        };
+        PublishStatusPoller poller = new PublishStatusPoller(client, 1000);
+        try {
+            Future<TestResultPushStatus> processed = poller.watch(1);
+            Future<TestResultPushStatus> timedOut = poller.watch(2);
+            Future<TestResultPushStatus> failedFirst = poller.watch(3);
+            Assert.assertEquals("success", processed.get().getStatus());
+            Assert.assertEquals(3, checks.get(1L).get());
+            Assert.assertEquals("running", timedOut.get().getStatus());
+            // checks at 100, 300, 700 and 1000 ms instead of every 100 ms
+            Assert.assertTrue(checks.get(2L).get() <= 5);
+            // failed check is repeated in a following round
+            Assert.assertEquals("success", failedFirst.get().getStatus());
+            Assert.assertEquals(2, checks.get(3L).get());
+        } finally {
+            poller.shutdown();
+        }
+    }
+
+    @Test
+    public void testPublishStatusPoller_deadlineAfterLastPush() throws InterruptedException, ExecutionException {
+        final AtomicInteger checks = new AtomicInteger();
+        final CountDownLatch thirdCheck = new CountDownLatch(3);
+        Settings settings = new Settings();
+        settings.setServer("http://localhost:8080");
+        RestClient client = new RestClient(settings) {
+            @Override
+            public TestResultPushStatus getTestResultStatus(long id) {
+                if (id == 1) {
+                    thirdCheck.countDown();
+                }
+                checks.incrementAndGet();
+                return new TestResultPushStatus("running", null, null);
+            }
+        };
+        PublishStatusPoller poller = new PublishStatusPoller(client, 1000);
+        try {
+            Future<TestResultPushStatus> first = poller.watch(1);
+            // the third check is done about 700 ms after the first push
+            thirdCheck.await();
+            long secondPushed = System.currentTimeMillis();
+            Future<TestResultPushStatus> second = poller.watch(2);
+            Assert.assertEquals("running", first.get().getStatus());
+            // the first push is not abandoned 1000 ms after it, but together with the second one
+            Assert.assertTrue(System.currentTimeMillis() - secondPushed >= 900);
+            Assert.assertEquals("running", second.get().getStatus());
+            // both are abandoned at the single deadline set by the last push
+            Assert.assertTrue(System.currentTimeMillis() - secondPushed < 1500);
+            Assert.assertTrue(checks.get() <= 12);
+        } finally {
+            poller.shutdown();
+        }
+    }
+
+    @Test
+    public void testPublishStatusPoller_throttledCheck() throws IOException, InterruptedException, ExecutionException {
+        final List<Long> checks = Collections.synchronizedList(new ArrayList<Long>());
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/authentication/sign_in", exchange -> {
+            exchange.getResponseHeaders().add("Set-Cookie", "LWSSO_COOKIE_KEY=session; Path=/");
+            respond(exchange, 200, "{}");
+        });
+        server.createContext("/api", exchange -> {
+            checks.add(System.currentTimeMillis());
+            if (checks.size() == 1) {
+                exchange.getResponseHeaders().add("Retry-After", "2");
+                respond(exchange, 429, "{}");
+            } else {
+                respond(exchange, 200, "{\"status\":\"success\"}");
+            }
+        });
+        server.start();
+        Settings settings = new Settings();
+        settings.setServer("http://127.0.0.1:" + server.getAddress().getPort());
+        settings.setSharedspace(1);
+        settings.setWorkspace(2);
+        settings.setUser("user");
+        settings.setPassword("password".getBytes(StandardCharsets.UTF_8));
+        PublishStatusPoller poller = new PublishStatusPoller(new RestClient(settings), 10000);
+        try {
+            Assert.assertEquals("success", poller.watch(1).get().getStatus());
+        } finally {
+            poller.shutdown();
+            server.stop(0);
+        }
+        Assert.assertEquals(2, checks.size());
+        // the throttled check is repeated after the delay asked for by the server, not after the polling delay
+        Assert.assertTrue(checks.get(1) - checks.get(0) >= 2000);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, content.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(content);
+        }
+    }
+}
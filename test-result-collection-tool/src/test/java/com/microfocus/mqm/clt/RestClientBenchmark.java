@@ -0,0 +1,144 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import com.microfocus.mqm.clt.tests.TestResultPushStatus;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the request execution path of the REST client against a local stub server, and the request context
+ * alone. It is not run by the build, run it with:
+ * <pre>
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/classpath.txt) org.openjdk.jmh.Main RestClientBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// the stub server would delay small responses by Nagle's algorithm otherwise
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class RestClientBenchmark {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private RestClient client;
+    private Cookie authToken;
+    private SessionContext sessionContext;
+
+    @Setup
+    public void setUp() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/authentication/sign_in", exchange -> {
+            exchange.getResponseHeaders().add("Set-Cookie", "LWSSO_COOKIE_KEY=session; Path=/");
+            respond(exchange, "{}");
+        });
+        server.createContext("/api", exchange -> respond(exchange, "{\"status\":\"success\"}"));
+        server.start();
+
+        Settings settings = new Settings();
+        settings.setServer("http://127.0.0.1:" + server.getAddress().getPort());
+        settings.setSharedspace(1);
+        settings.setWorkspace(2);
+        settings.setUser("user");
+        settings.setPassword("password".getBytes(StandardCharsets.UTF_8));
+        client = new RestClient(settings);
+        authToken = new BasicClientCookie("LWSSO_COOKIE_KEY", "session");
+        sessionContext = SessionContext.forAuthToken(authToken);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public TestResultPushStatus execute() {
+        return client.getTestResultStatus(1);
+    }
+
+    @Benchmark
+    public HttpContext perRequestContext() {
+        // the context which used to be created for every request
+        CookieStore cookieStore = new BasicCookieStore();
+        cookieStore.addCookie(authToken);
+        HttpContext context = new BasicHttpContext();
+        context.setAttribute(HttpClientContext.COOKIE_STORE, cookieStore);
+        return context;
+    }
+
+    @Benchmark
+    public HttpContext sessionContext() {
+        return sessionContext.createRequestContext();
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, content.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(content);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import com.microfocus.mqm.clt.Exception.ValidationException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.entity.StringEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RestClientTest {
+
+    @Test
+    public void testRestClient_refreshesSessionBeforeExpiry() throws IOException, InterruptedException, ExecutionException {
+        final AtomicInteger logins = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        final List<String> logouts = Collections.synchronizedList(new ArrayList<>());
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/authentication/sign_in", exchange -> {
+            // the session expires in an hour
+            exchange.getResponseHeaders().add("Set-Cookie", "LWSSO_COOKIE_KEY=session" + logins.incrementAndGet() + "; Max-Age=3600; Path=/");
+            respond(exchange, 200, "{}");
+        });
+        server.createContext("/authentication/sign_out", exchange -> {
+            logouts.add(exchange.getRequestHeaders().getFirst("Cookie"));
+            respond(exchange, 200, "{}");
+        });
+        server.createContext("/api", exchange -> {
+            String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+            if (!("LWSSO_COOKIE_KEY=session" + logins.get()).equals(cookie)) {
+                rejected.incrementAndGet();
+                respond(exchange, 401, "{}");
+            } else {
+                respond(exchange, 200, "{\"status\":\"success\"}");
+            }
+        });
+        server.start();
+        Settings settings = new Settings();
+        settings.setServer("http://127.0.0.1:" + server.getAddress().getPort());
+        settings.setSharedspace(1);
+        settings.setWorkspace(2);
+        settings.setUser("user");
+        settings.setPassword("password".getBytes(StandardCharsets.UTF_8));
+        final AtomicLong clockOffset = new AtomicLong();
+        RestClient client = new RestClient(settings) {
+            @Override
+            protected long currentTimeMillis() {
+                return super.currentTimeMillis() + clockOffset.get();
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            client.getTestResultStatus(1);
+            // less than 5 minutes before the session expires, concurrent requests share a single refresh
+            clockOffset.set(56 * 60 * 1000);
+            List<Future<?>> requests = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                requests.add(executor.submit(() -> client.getTestResultStatus(1)));
+            }
+            for (Future<?> request : requests) {
+                request.get();
+            }
+            // the replaced session is signed out once it is no longer used
+            Assert.assertEquals(Collections.singletonList("LWSSO_COOKIE_KEY=session1"), logouts);
+            client.release();
+        } finally {
+            executor.shutdownNow();
+            server.stop(0);
+        }
+        Assert.assertEquals(2, logins.get());
+        Assert.assertEquals(0, rejected.get());
+        Assert.assertEquals(Arrays.asList("LWSSO_COOKIE_KEY=session1", "LWSSO_COOKIE_KEY=session2"), logouts);
+    }
+
+    @Test
+    public void testRestClient_compressionRefused() throws IOException, ValidationException {
+        final List<String> pushes = new ArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/authentication/sign_in", exchange -> {
+            exchange.getResponseHeaders().add("Set-Cookie", "LWSSO_COOKIE_KEY=session; Path=/");
+            respond(exchange, 200, "{}");
+        });
+        server.createContext("/api", exchange -> {
+            String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            String body = IOUtils.toString("gzip".equals(contentEncoding) ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody(),
+                    StandardCharsets.UTF_8);
+            pushes.add(contentEncoding + "|" + body);
+            if ("gzip".equals(contentEncoding)) {
+                respond(exchange, 415, "{}");
+            } else {
+                respond(exchange, 202, "{\"id\":5}");
+            }
+        });
+        server.start();
+        Settings settings = new Settings();
+        settings.setServer("http://127.0.0.1:" + server.getAddress().getPort());
+        settings.setSharedspace(1);
+        settings.setWorkspace(2);
+        settings.setUser("user");
+        settings.setPassword("password".getBytes(StandardCharsets.UTF_8));
+        settings.setCompress(true);
+        try {
+            // the refused compressed push is sent again uncompressed
+            Assert.assertEquals(5, new RestClient(settings).postTestResult(new StringEntity("<test_result/>", ContentType.APPLICATION_XML)));
+            Assert.assertEquals(2, pushes.size());
+            Assert.assertEquals("gzip|<test_result/>", pushes.get(0));
+            Assert.assertEquals("null|<test_result/>", pushes.get(1));
+
+            // the body of a report read from a pipe can not be sent again
+            pushes.clear();
+            try {
+                new RestClient(settings).postTestResult(new InputStreamEntity(new ByteArrayInputStream("<test_result/>".getBytes(StandardCharsets.UTF_8))));
+                Assert.fail("Consumed test result was pushed again");
+            } catch (ValidationException e) {
+                Assert.assertTrue(e.getMessage().contains("415"));
+            }
+            Assert.assertEquals(1, pushes.size());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, content.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(content);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt;
+
+import com.microfocus.mqm.clt.Exception.ReportConversionException;
+import com.microfocus.mqm.clt.Exception.ValidationException;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.HttpHostConnectException;
+import org.apache.http.entity.EntityTemplate;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void testRetryPolicy() {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 300000);
+        HttpPost request = new HttpPost("http://localhost:8080/test-results");
+        request.setEntity(new StringEntity("<test_result/>", "UTF-8"));
+        long now = System.currentTimeMillis();
+
+        Assert.assertEquals(-1, retryPolicy.getRetryDelay(request, 1, now, createResponse(HttpStatus.SC_BAD_REQUEST)));
+        long delay = retryPolicy.getRetryDelay(request, 1, now, createResponse(HttpStatus.SC_SERVICE_UNAVAILABLE));
+        Assert.assertTrue(delay >= 500 && delay <= 1000);
+        delay = retryPolicy.getRetryDelay(request, 3, now, new ConnectException("Connection refused"));
+        Assert.assertTrue(delay >= 2000 && delay <= 4000);
+        Assert.assertEquals(-1, retryPolicy.getRetryDelay(request, 4, now, createResponse(HttpStatus.SC_BAD_GATEWAY)));
+        Assert.assertEquals(-1, retryPolicy.getRetryDelay(request, 1, now, new UnknownHostException("localhost")));
+    }
+
+    @Test
+    public void testRetryPolicy_retryAfter() {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 10000);
+        HttpGet request = new HttpGet("http://localhost:8080/test-results/1");
+        HttpResponse response = createResponse(429);
+        response.setHeader("Retry-After", "7");
+        Assert.assertEquals(7000, retryPolicy.getRetryDelay(request, 1, System.currentTimeMillis(), response));
+        // total budget is exhausted by the next delay
+        Assert.assertEquals(-1, retryPolicy.getRetryDelay(request, 2, System.currentTimeMillis(), response));
+    }
+
+    @Test
+    public void testRetryPolicy_rejectedDelayIsNotCharged() {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 10000);
+        HttpGet request = new HttpGet("http://localhost:8080/test-results/1");
+        HttpResponse response = createResponse(429);
+        response.setHeader("Retry-After", "7");
+        Assert.assertEquals(7000, retryPolicy.getRetryDelay(request, 1, System.currentTimeMillis(), response));
+        response.setHeader("Retry-After", "5");
+        Assert.assertEquals(-1, retryPolicy.getRetryDelay(request, 1, System.currentTimeMillis(), response));
+        // the rejected delay did not use up the rest of the budget
+        response.setHeader("Retry-After", "3");
+        Assert.assertEquals(3000, retryPolicy.getRetryDelay(request, 1, System.currentTimeMillis(), response));
+    }
+
+    @Test
+    public void testRetryPolicy_nonRepeatableEntity() {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 300000);
+        HttpPost request = new HttpPost("http://localhost:8080/test-results");
+        request.setEntity(new InputStreamEntity(new ByteArrayInputStream(new byte[0])));
+        Assert.assertEquals(-1, retryPolicy.getRetryDelay(request, 1, System.currentTimeMillis(), createResponse(HttpStatus.SC_SERVICE_UNAVAILABLE)));
+    }
+
+    @Test
+    public void testRetryPolicy_readTimeoutOfPush() {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 300000);
+        HttpPost post = new HttpPost("http://localhost:8080/test-results");
+        post.setEntity(new StringEntity("<test_result/>", "UTF-8"));
+        Assert.assertEquals(-1, retryPolicy.getRetryDelay(post, 1, System.currentTimeMillis(), new SocketTimeoutException("Read timed out")));
+        // the push may have been accepted before the connection broke
+        Assert.assertEquals(-1, retryPolicy.getRetryDelay(post, 1, System.currentTimeMillis(), new NoHttpResponseException("localhost:8080 failed to respond")));
+        Assert.assertEquals(-1, retryPolicy.getRetryDelay(post, 1, System.currentTimeMillis(), new SocketException("Connection reset")));
+        // the push was not sent at all
+        Assert.assertTrue(retryPolicy.getRetryDelay(post, 1, System.currentTimeMillis(), new ConnectTimeoutException("Connect timed out")) > 0);
+        Assert.assertTrue(retryPolicy.getRetryDelay(post, 1, System.currentTimeMillis(), new HttpHostConnectException(new ConnectException("Connection refused"),
+                new HttpHost("localhost", 8080))) > 0);
+        HttpGet get = new HttpGet("http://localhost:8080/test-results/1");
+        Assert.assertTrue(retryPolicy.getRetryDelay(get, 1, System.currentTimeMillis(), new SocketTimeoutException("Read timed out")) > 0);
+    }
+
+    @Test
+    public void testRetryPolicy_invalidStreamedReport() throws IOException, URISyntaxException {
+        final AtomicInteger pushes = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/authentication/sign_in", exchange -> {
+            exchange.getResponseHeaders().add("Set-Cookie", "LWSSO_COOKIE_KEY=session; Path=/");
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/api", exchange -> {
+            pushes.incrementAndGet();
+            byte[] content = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+            IOUtils.copy(exchange.getRequestBody(), NullOutputStream.INSTANCE);
+            exchange.sendResponseHeaders(202, content.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(content);
+            }
+        });
+        server.start();
+        Settings settings = new Settings();
+        settings.setServer("http://127.0.0.1:" + server.getAddress().getPort());
+        settings.setSharedspace(1);
+        settings.setWorkspace(2);
+        settings.setUser("user");
+        settings.setPassword("password".getBytes(StandardCharsets.UTF_8));
+        final AtomicInteger conversions = new AtomicInteger();
+        final JunitReportContentProducer producer = new JunitReportContentProducer(
+                new File(getClass().getResource("JUnit-unclosedElement.xmlx").toURI()), settings);
+        RestClient client = new RestClient(settings);
+        try {
+            client.postTestResult(new EntityTemplate(outputStream -> {
+                conversions.incrementAndGet();
+                producer.writeTo(outputStream);
+            }));
+            Assert.fail("Invalid report was pushed");
+        } catch (ReportConversionException e) {
+            // expected
+        } catch (ValidationException e) {
+            Assert.fail(e.getMessage());
+        } finally {
+            server.stop(0);
+        }
+        Assert.assertEquals(1, conversions.get());
+    }
+
+    private HttpResponse createResponse(int statusCode) {
+        return new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, null);
+    }
+}
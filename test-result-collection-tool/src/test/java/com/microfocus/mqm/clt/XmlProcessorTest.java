@@ -32,9 +32,13 @@
 
 package com.microfocus.mqm.clt;
 
+import com.microfocus.mqm.clt.Exception.ValidationException;
 import com.microfocus.mqm.clt.tests.TestResult;
 import com.microfocus.mqm.clt.tests.TestResultStatus;
+import com.microfocus.mqm.clt.xml.JunitXmlIterator;
+import com.microfocus.mqm.clt.xml.TestResultXmlWriter;
 import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Assert;
@@ -51,7 +55,10 @@ import javax.xml.stream.XMLStreamReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -93,6 +100,105 @@ public class XmlProcessorTest {
         assertTestResult(testResults.get(2), "com.examples.example", "SampleClass", "testThree", TestResultStatus.SKIPPED, 5, 1445937556462L);
     }
 
+    @Test
+    public void testXmlProcessor_longProlog() throws URISyntaxException, IOException {
+        String report = IOUtils.toString(getClass().getResource("JUnit-minimalAccepted.xml").toURI(), "UTF-8");
+        // comment longer than the part of the report read to detect its format
+        File junitReport = temporaryFolder.newFile("JUnit-longProlog.xml");
+        FileUtils.writeStringToFile(junitReport, report.replace("<testsuite>", "<!--" + StringUtils.repeat("x", 100 * 1024) + "-->\n<testsuite>"), "UTF-8");
+        systemOutRule.enableLog();
+        List<TestResult> testResults = new XmlProcessor().processJunitTestReport(junitReport, 1445937556462L);
+        Assert.assertEquals(4, testResults.size());
+        Assert.assertTrue(systemOutRule.getLog().contains("the report is processed as a JUnit report"));
+    }
+
+    @Test
+    public void testXmlProcessor_otherReportFormats() throws URISyntaxException {
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        List<TestResult> testResults = xmlProcessor.processJunitTestReport(new File(getClass().getResource("TestNG-results.xml").toURI()), 1445937556462L);
+        Assert.assertEquals(3, testResults.size());
+        assertTestResult(testResults.get(0), "com.examples.example", "SampleTest", "testOne", TestResultStatus.PASSED, 12, 1445937556462L);
+        assertTestResult(testResults.get(1), "com.examples.example", "SampleTest", "testTwo", TestResultStatus.FAILED, 20, 1445937556462L);
+        assertTestResult(testResults.get(2), "com.examples.example", "SampleTest", "testThree", TestResultStatus.SKIPPED, 0, 1445937556462L);
+        Assert.assertEquals("java.lang.AssertionError", testResults.get(1).getErrorType());
+        Assert.assertEquals("expected [1] but found [2]", testResults.get(1).getErrorMsg().trim());
+
+        testResults = xmlProcessor.processJunitTestReport(new File(getClass().getResource("NUnit3-results.xml").toURI()), 1445937556462L);
+        Assert.assertEquals(3, testResults.size());
+        assertTestResult(testResults.get(0), "Examples", "SampleTest", "TestOne", TestResultStatus.PASSED, 12, 1445937556462L);
+        assertTestResult(testResults.get(1), "Examples", "SampleTest", "TestTwo", TestResultStatus.FAILED, 20, 1445937556462L);
+        assertTestResult(testResults.get(2), "Examples", "SampleTest", "TestThree", TestResultStatus.SKIPPED, 0, 1445937556462L);
+        Assert.assertTrue(testResults.get(1).getErrorMsg().contains("But was:  2"));
+        Assert.assertTrue(testResults.get(1).getStackTraceStr().contains("SampleTest.cs:line 20"));
+
+        testResults = xmlProcessor.processJunitTestReport(new File(getClass().getResource("xUnit-results.xml").toURI()), 1445937556462L);
+        Assert.assertEquals(3, testResults.size());
+        assertTestResult(testResults.get(0), "Examples", "SampleTest", "TestOne", TestResultStatus.PASSED, 12, 1445937556462L);
+        assertTestResult(testResults.get(1), "Examples", "SampleTest", "TestTwo(value: 2)", TestResultStatus.FAILED, 20, 1445937556462L);
+        assertTestResult(testResults.get(2), "Examples", "SampleTest", "TestThree", TestResultStatus.SKIPPED, 0, 1445937556462L);
+        Assert.assertEquals("Xunit.Sdk.EqualException", testResults.get(1).getErrorType());
+
+        // class names of TRX results are defined after the results themselves
+        testResults = xmlProcessor.processJunitTestReport(new File(getClass().getResource("MSTest-results.trx").toURI()), 1445937556462L);
+        Assert.assertEquals(5, testResults.size());
+        assertTestResult(testResults.get(0), "Examples", "SampleTest", "TestOne", TestResultStatus.PASSED, 12, 1445937556462L);
+        assertTestResult(testResults.get(1), "Examples", "SampleTest", "TestTwo", TestResultStatus.FAILED, 20, 1445937556462L);
+        assertTestResult(testResults.get(2), "Examples", "DataTest", "TestData (1)", TestResultStatus.PASSED, 500, 1445937556462L);
+        assertTestResult(testResults.get(3), "Examples", "DataTest", "TestData (2)", TestResultStatus.FAILED, 1000, 1445937556462L);
+        assertTestResult(testResults.get(4), "Examples", "SampleTest", "TestThree", TestResultStatus.SKIPPED, 0, 1445937556462L);
+        Assert.assertEquals("Assert.AreEqual failed. Expected:<1>. Actual:<2>.", testResults.get(1).getErrorMsg());
+        Assert.assertEquals("Timeout", testResults.get(3).getErrorType());
+    }
+
+    @Test
+    public void testXmlProcessor_cucumberJsonReport() throws URISyntaxException {
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        List<TestResult> testResults = xmlProcessor.processJunitTestReport(new File(getClass().getResource("Cucumber-results.json").toURI()), 1445937556462L);
+        Assert.assertEquals(3, testResults.size());
+        // background steps and hooks count to the scenario
+        assertTestResult(testResults.get(0), "", "Eating cukes", "Eat 5 cukes", TestResultStatus.PASSED, 12, 1445937556462L);
+        assertTestResult(testResults.get(1), "", "Eating cukes", "Eat \"too many\" cukes \u2013 50", TestResultStatus.FAILED, 21, 1445937556462L);
+        assertTestResult(testResults.get(2), "", "features/pending.feature", "Not yet", TestResultStatus.SKIPPED, 0, 1445937556462L);
+        Assert.assertEquals("Step failed: When I eat 50 cukes", testResults.get(1).getErrorMsg());
+        Assert.assertEquals("java.lang.AssertionError: belly exploded\n\tat BellySteps.eat(BellySteps.java:20)", testResults.get(1).getStackTraceStr());
+    }
+
+    @Test
+    public void testXmlProcessor_archives() throws URISyntaxException {
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        // tar entries other than reports are skipped, the TestNG report has a long pax path
+        List<TestResult> testResults = xmlProcessor.processJunitTestReport(new File(getClass().getResource("reports.tar.gz").toURI()), 1445937556462L);
+        Assert.assertEquals(7, testResults.size());
+        assertTestResult(testResults.get(0), "", "", "testName", TestResultStatus.PASSED, 0, 1445937556462L);
+        assertTestResult(testResults.get(4), "com.examples.example", "SampleTest", "testOne", TestResultStatus.PASSED, 12, 1445937556462L);
+
+        testResults = xmlProcessor.processJunitTestReport(new File(getClass().getResource("reports.zip").toURI()), 1445937556462L);
+        Assert.assertEquals(9, testResults.size());
+        assertTestResult(testResults.get(0), "Examples", "SampleTest", "TestOne", TestResultStatus.PASSED, 12, 1445937556462L);
+        assertTestResult(testResults.get(8), "", "", "testNameWithError", TestResultStatus.FAILED, 4, 1445937556462L);
+
+        testResults = xmlProcessor.processJunitTestReport(new File(getClass().getResource("JUnit-minimalAccepted.xml.gz").toURI()), 1445937556462L);
+        Assert.assertEquals(4, testResults.size());
+    }
+
+    @Test
+    public void testXmlProcessor_standardInput() throws IOException {
+        InputStream stdin = System.in;
+        try {
+            // archives and formats are detected without reading the input twice
+            System.setIn(getClass().getResourceAsStream("reports.tar.gz"));
+            List<TestResult> testResults = new XmlProcessor().processJunitTestReport(new File(ReportInput.STDIN), 1445937556462L);
+            Assert.assertEquals(7, testResults.size());
+
+            System.setIn(getClass().getResourceAsStream("MSTest-results.trx"));
+            testResults = new XmlProcessor().processJunitTestReport(new File(ReportInput.STDIN), 1445937556462L);
+            Assert.assertEquals(5, testResults.size());
+            assertTestResult(testResults.get(2), "Examples", "DataTest", "TestData (1)", TestResultStatus.PASSED, 500, 1445937556462L);
+        } finally {
+            System.setIn(stdin);
+        }
+    }
+
     @Test
     public void testXmlProcessor_unclosedElement() throws URISyntaxException {
         systemOutRule.enableLog();
@@ -158,6 +264,176 @@ public class XmlProcessorTest {
         assertXml(new LinkedList<TestResult>(testResults), xmlElements, targetFile);
     }
 
+    @Test
+    public void testXmlProcessor_convertJunitTestReport() throws URISyntaxException, IOException, XMLStreamException, ValidationException {
+        File targetFile = temporaryFolder.newFile();
+        Settings settings = new Settings();
+        settings.setStarted(1445937556462L);
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        xmlProcessor.convertJunitTestReport(new File(getClass().getResource("JUnit-missingTestName.xml").toURI()), settings, targetFile);
+
+        List<TestResult> testResults = new LinkedList<TestResult>();
+        testResults.add(new TestResult("com.examples.example", "SampleClass", "testOne", TestResultStatus.PASSED, 2, 1445937556462L));
+        testResults.add(new TestResult("com.examples.example", "SampleClass", "testTwo", TestResultStatus.SKIPPED, 5, 1445937556462L));
+        testResults.add(new TestResult("com.examples.example", "SampleClass", "testThree", TestResultStatus.SKIPPED, 5, 1445937556462L));
+        assertXml(testResults, new HashSet<XmlElement>(), targetFile);
+    }
+
+    @Test
+    public void testXmlProcessor_convertJunitTestReports() throws URISyntaxException, IOException, XMLStreamException, ValidationException {
+        File targetFile = temporaryFolder.newFile();
+        Settings settings = new Settings();
+        settings.setStarted(1445937556462L);
+        settings.setRelease(1010);
+        List<File> junitReports = new LinkedList<File>();
+        junitReports.add(new File(getClass().getResource("JUnit-missingTestName.xml").toURI()));
+        junitReports.add(new File(getClass().getResource("JUnit-minimalAccepted.xml").toURI()));
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        Assert.assertEquals(7, xmlProcessor.convertJunitTestReports(junitReports, settings, targetFile));
+
+        List<TestResult> testResults = new LinkedList<TestResult>();
+        testResults.add(new TestResult("com.examples.example", "SampleClass", "testOne", TestResultStatus.PASSED, 2, 1445937556462L));
+        testResults.add(new TestResult("com.examples.example", "SampleClass", "testTwo", TestResultStatus.SKIPPED, 5, 1445937556462L));
+        testResults.add(new TestResult("com.examples.example", "SampleClass", "testThree", TestResultStatus.SKIPPED, 5, 1445937556462L));
+        testResults.add(new TestResult("", "", "testName", TestResultStatus.PASSED, 0, 1445937556462L));
+        testResults.add(new TestResult("", "", "testNameSkipped", TestResultStatus.SKIPPED, 2, 1445937556462L));
+        testResults.add(new TestResult("", "", "testNameFailed", TestResultStatus.FAILED, 3, 1445937556462L));
+        testResults.add(new TestResult("", "", "testNameWithError", TestResultStatus.FAILED, 4, 1445937556462L));
+        // release reference is written once for the merged document
+        Set<XmlElement> xmlElements = new HashSet<XmlElement>();
+        xmlElements.add(new XmlElement("release_ref", "1010"));
+        assertXml(testResults, xmlElements, targetFile);
+    }
+
+    @Test
+    public void testXmlProcessor_convertJunitTestReportInChunks() throws URISyntaxException, IOException, XMLStreamException, ValidationException {
+        final List<File> chunks = new LinkedList<File>();
+        final List<Integer> chunkSizes = new LinkedList<Integer>();
+        TestResultXmlWriter.ChunkTarget chunkTarget = new TestResultXmlWriter.ChunkTarget() {
+            @Override
+            public OutputStream openChunk() throws IOException {
+                chunks.add(temporaryFolder.newFile());
+                return new FileOutputStream(chunks.get(chunks.size() - 1));
+            }
+
+            @Override
+            public void chunkCompleted(int testResultsCount) {
+                chunkSizes.add(testResultsCount);
+            }
+        };
+        Settings settings = new Settings();
+        settings.setStarted(1445937556462L);
+        List<File> junitReports = new LinkedList<File>();
+        junitReports.add(new File(getClass().getResource("JUnit-missingTestName.xml").toURI()));
+        junitReports.add(new File(getClass().getResource("JUnit-minimalAccepted.xml").toURI()));
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        Assert.assertEquals(7, xmlProcessor.convertJunitTestReports(junitReports, settings, chunkTarget, 3, Long.MAX_VALUE));
+        Assert.assertEquals(3, chunks.size());
+        Assert.assertEquals(3, (int) chunkSizes.get(0));
+        Assert.assertEquals(3, (int) chunkSizes.get(1));
+        Assert.assertEquals(1, (int) chunkSizes.get(2));
+
+        List<TestResult> testResults = new LinkedList<TestResult>();
+        testResults.add(new TestResult("", "", "testNameWithError", TestResultStatus.FAILED, 4, 1445937556462L));
+        assertXml(testResults, new HashSet<XmlElement>(), chunks.get(2));
+    }
+
+    @Test
+    public void testXmlProcessor_rollbackOfInvalidReport() throws URISyntaxException, IOException, XMLStreamException, ValidationException {
+        final List<File> chunks = new LinkedList<File>();
+        final List<Integer> chunkSizes = new LinkedList<Integer>();
+        TestResultXmlWriter.ChunkTarget chunkTarget = new TestResultXmlWriter.ChunkTarget() {
+            @Override
+            public OutputStream openChunk() throws IOException {
+                chunks.add(temporaryFolder.newFile());
+                return new FileOutputStream(chunks.get(chunks.size() - 1));
+            }
+
+            @Override
+            public void chunkCompleted(int testResultsCount) {
+                chunkSizes.add(testResultsCount);
+            }
+        };
+        Settings settings = new Settings();
+        settings.setStarted(1445937556462L);
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        TestResultXmlWriter testResultXmlWriter = new TestResultXmlWriter(chunkTarget, 100, Long.MAX_VALUE);
+        testResultXmlWriter.mark();
+        Assert.assertEquals(3, xmlProcessor.convertJunitTestReport(new File(getClass().getResource("JUnit-missingTestName.xml").toURI()), settings, testResultXmlWriter));
+        testResultXmlWriter.mark();
+        try {
+            xmlProcessor.convertJunitTestReport(new File(getClass().getResource("JUnit-unclosedElement.xmlx").toURI()), settings, testResultXmlWriter);
+            Assert.fail("Invalid report should not be converted");
+        } catch (ValidationException e) {
+            // the test runs written before the error are removed
+            Assert.assertTrue(testResultXmlWriter.rollback());
+        }
+        testResultXmlWriter.mark();
+        Assert.assertEquals(4, xmlProcessor.convertJunitTestReport(new File(getClass().getResource("JUnit-minimalAccepted.xml").toURI()), settings, testResultXmlWriter));
+        testResultXmlWriter.close();
+        Assert.assertEquals(1, chunks.size());
+        Assert.assertEquals(7, (int) chunkSizes.get(0));
+
+        List<TestResult> testResults = new LinkedList<TestResult>();
+        testResults.add(new TestResult("com.examples.example", "SampleClass", "testOne", TestResultStatus.PASSED, 2, 1445937556462L));
+        testResults.add(new TestResult("com.examples.example", "SampleClass", "testTwo", TestResultStatus.SKIPPED, 5, 1445937556462L));
+        testResults.add(new TestResult("com.examples.example", "SampleClass", "testThree", TestResultStatus.SKIPPED, 5, 1445937556462L));
+        testResults.add(new TestResult("", "", "testName", TestResultStatus.PASSED, 0, 1445937556462L));
+        testResults.add(new TestResult("", "", "testNameSkipped", TestResultStatus.SKIPPED, 2, 1445937556462L));
+        testResults.add(new TestResult("", "", "testNameFailed", TestResultStatus.FAILED, 3, 1445937556462L));
+        testResults.add(new TestResult("", "", "testNameWithError", TestResultStatus.FAILED, 4, 1445937556462L));
+        assertXml(testResults, new HashSet<XmlElement>(), chunks.get(0));
+    }
+
+    @Test
+    public void testJunitXmlIterator_truncation() throws URISyntaxException, IOException, XMLStreamException, InterruptedException {
+        File junitReport = new File(getClass().getResource("JUnit-minimalAccepted.xml").toURI());
+        JunitXmlIterator fullIterator = new JunitXmlIterator(junitReport, 1445937556462L);
+        JunitXmlIterator truncatingIterator = new JunitXmlIterator(junitReport, 1445937556462L, 20, 6);
+        TestResult testResult = null;
+        TestResult truncatedTestResult = null;
+        while (fullIterator.hasNext() && truncatingIterator.hasNext()) {
+            testResult = fullIterator.next();
+            truncatedTestResult = truncatingIterator.next();
+        }
+        // leading and trailing whitespace of the stack trace count neither to the captured nor to the truncated bytes
+        String stackTrace = testResult.getStackTraceStr();
+        Assert.assertEquals(stackTrace.substring(0, 20) + "... [" + (stackTrace.length() - 20) + " bytes truncated]", truncatedTestResult.getStackTraceStr());
+        Assert.assertEquals("Assert error", testResult.getErrorMsg());
+        Assert.assertEquals("Assert... [6 bytes truncated]", truncatedTestResult.getErrorMsg());
+    }
+
+    @Test
+    public void testXmlProcessor_convertUnclosedElement() throws URISyntaxException, IOException {
+        File targetFile = temporaryFolder.newFile();
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        try {
+            xmlProcessor.convertJunitTestReport(new File(getClass().getResource("JUnit-unclosedElement.xmlx").toURI()), new Settings(), targetFile);
+            Assert.fail();
+        } catch (ValidationException e) {
+            Assert.assertTrue(e.getMessage().contains("Unable to process JUnit XML file"));
+        }
+    }
+
+    @Test
+    public void testXmlProcessor_writeJunitTestReportToStream() throws URISyntaxException, IOException, XMLStreamException, InterruptedException {
+        File targetFile = temporaryFolder.newFile();
+        Settings settings = new Settings();
+        settings.setStarted(1444291726L);
+        XmlProcessor xmlProcessor = new XmlProcessor();
+        TestResultXmlWriter testResultXmlWriter = new TestResultXmlWriter(new FileOutputStream(targetFile));
+        int testResultsCount = xmlProcessor.writeJunitTestReport(new File(getClass().getResource("JUnit-minimalAccepted.xml").toURI()), settings, testResultXmlWriter);
+        testResultXmlWriter.close();
+        Assert.assertEquals(4, testResultsCount);
+
+        List<TestResult> testResults = new LinkedList<TestResult>();
+        testResults.add(new TestResult("", "", "testName", TestResultStatus.PASSED, 0, 1444291726L));
+        testResults.add(new TestResult("", "", "testNameSkipped", TestResultStatus.SKIPPED, 2, 1444291726L));
+        testResults.add(new TestResult("", "", "testNameFailed", TestResultStatus.FAILED, 3, 1444291726L));
+        testResults.add(new TestResult("", "", "testNameWithError", TestResultStatus.FAILED, 4, 1444291726L));
+        assertXml(testResults, new HashSet<XmlElement>(), targetFile);
+    }
+
     private void assertTestResult(TestResult testResult, String packageName, String className, String testName,
                                   TestResultStatus result, long duration, long started) {
         Assert.assertEquals(packageName, testResult.getPackageName());
@@ -0,0 +1,119 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt.authentication;
+
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AuthSessionTest {
+
+    @Test
+    public void testAuthSession_concurrentRefreshSignsInOnce() throws Exception {
+        final AtomicInteger signIns = new AtomicInteger();
+        final CountDownLatch allRejected = new CountDownLatch(8);
+        AuthSession authSession = new AuthSession(() -> {
+            int signIn = signIns.incrementAndGet();
+            if (signIn > 1) {
+                // the second sign in waits until all requests were rejected
+                try {
+                    allRejected.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+            return new BasicClientCookie("LWSSO_COOKIE_KEY", "session" + signIn);
+        }, () -> null);
+        final Cookie rejected = authSession.getCookie();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Cookie>> refreshed = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                refreshed.add(executor.submit(() -> {
+                    allRejected.countDown();
+                    return authSession.refresh(rejected);
+                }));
+            }
+            for (Future<Cookie> cookie : refreshed) {
+                Assert.assertEquals("session2", cookie.get().getValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(2, signIns.get());
+        Assert.assertEquals("session2", authSession.getCookie().getValue());
+    }
+
+    @Test
+    public void testAuthSession_refreshSignsOutReplacedSessionAfterItsLastRequest() throws Exception {
+        final AtomicInteger signIns = new AtomicInteger();
+        final AtomicLong now = new AtomicLong(0);
+        final List<String> signOuts = new ArrayList<>();
+        AuthSession authSession = new AuthSession(() -> {
+            BasicClientCookie cookie = new BasicClientCookie("LWSSO_COOKIE_KEY", "session" + signIns.incrementAndGet());
+            cookie.setExpiryDate(new Date(now.get() + 60 * 60 * 1000));
+            return cookie;
+        }, cookie -> signOuts.add(cookie.getValue()), () -> null, now::get);
+
+        Cookie inProgress = authSession.getCookie();
+        Assert.assertEquals("session1", inProgress.getValue());
+        // the session is refreshed 5 minutes before it expires, while a request still uses it
+        now.set(56 * 60 * 1000);
+        Cookie refreshed = authSession.getCookie();
+        Assert.assertEquals("session2", refreshed.getValue());
+        Assert.assertTrue(signOuts.isEmpty());
+
+        authSession.release(inProgress);
+        Assert.assertEquals(Collections.singletonList("session1"), signOuts);
+        authSession.release(refreshed);
+        Assert.assertEquals(Collections.singletonList("session1"), signOuts);
+
+        // a session rejected by the server is not signed out
+        Assert.assertEquals("session3", authSession.refresh(refreshed).getValue());
+        Assert.assertEquals(Collections.singletonList("session1"), signOuts);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *     Copyright 2015-2023 Open Text
+ *
+ *     The only warranties for products and services of Open Text and
+ *     its affiliates and licensors ("Open Text") are as may be set forth
+ *     in the express warranty statements accompanying such products and services.
+ *     Nothing herein should be construed as constituting an additional warranty.
+ *     Open Text shall not be liable for technical or editorial errors or
+ *     omissions contained herein. The information contained herein is subject
+ *     to change without notice.
+ *
+ *     Except as specifically indicated otherwise, this document contains
+ *     confidential information and a valid license is required for possession,
+ *     use or copying. If this work is provided to the U.S. Government,
+ *     consistent with FAR 12.211 and 12.212, Commercial Computer Software,
+ *     Computer Software Documentation, and Technical Data for Commercial Items are
+ *     licensed to the U.S. Government under vendor's standard commercial license.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+
+package com.microfocus.mqm.clt.authentication;
+
+import com.microfocus.mqm.clt.Settings;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+public class SessionCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSessionCache() throws IOException {
+        File cacheFile = new File(temporaryFolder.getRoot(), "session.cache");
+        BasicClientCookie cookie = new BasicClientCookie("LWSSO_COOKIE_KEY", "token");
+        cookie.setDomain("localhost");
+        cookie.setPath("/");
+        new SessionCache(cacheFile, createSettings("admin", "Welcome1")).store(cookie);
+
+        Cookie cachedCookie = new SessionCache(cacheFile, createSettings("admin", "Welcome1")).load();
+        Assert.assertEquals("LWSSO_COOKIE_KEY", cachedCookie.getName());
+        Assert.assertEquals("token", cachedCookie.getValue());
+        Assert.assertEquals("localhost", cachedCookie.getDomain());
+        Assert.assertEquals("/", cachedCookie.getPath());
+
+        // other user has no cached session and changed password makes the session unusable
+        Assert.assertNull(new SessionCache(cacheFile, createSettings("other", "Welcome1")).load());
+        Assert.assertNull(new SessionCache(cacheFile, createSettings("admin", "Welcome2")).load());
+    }
+
+    @Test
+    public void testSessionCache_expired() throws IOException {
+        File cacheFile = new File(temporaryFolder.getRoot(), "session.cache");
+        BasicClientCookie cookie = new BasicClientCookie("LWSSO_COOKIE_KEY", "token");
+        cookie.setExpiryDate(new Date(System.currentTimeMillis() + 1000));
+        new SessionCache(cacheFile, createSettings("admin", "Welcome1")).store(cookie);
+        Assert.assertNull(new SessionCache(cacheFile, createSettings("admin", "Welcome1")).load());
+    }
+
+    private Settings createSettings(String user, String password) {
+        Settings settings = new Settings();
+        settings.setServer("http://localhost:8080");
+        settings.setUser(user);
+        settings.setPassword(password.getBytes(StandardCharsets.UTF_8));
+        return settings;
+    }
+}